@@ -0,0 +1,50 @@
+package com.payment.paymentSystem.benchmark;
+
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds pre-populated services for the benchmarks. Console output is disabled throughout.
+ */
+final class BenchmarkData {
+    static final int ACCOUNTS = 10_000;
+    static final long STARTING_BALANCE_MINOR = 1_000_000_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    static List<String> registerUsers(UserService userService, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = userService.registerUser("Bench", "User" + i, email(i), "555" + i);
+            user.setBalanceMinor(STARTING_BALANCE_MINOR);
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    static void processPayments(PaymentService paymentService, List<String> accountIds, int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < count; i++) {
+            paymentService.processPayment(PaymentRequest.builder()
+                    .setSenderUserId(accountIds.get(random.nextInt(accountIds.size())))
+                    .setReceiverUserId(accountIds.get(random.nextInt(accountIds.size())))
+                    .setAmountMinor(1 + random.nextInt(10_000))
+                    .setReferenceNumber(reference(i))
+                    .build());
+        }
+    }
+
+    static String email(int index) {
+        return "bench" + index + "@example.com";
+    }
+
+    static String reference(int index) {
+        return "BENCH_" + index;
+    }
+}
@@ -0,0 +1,68 @@
+package com.payment.paymentSystem.benchmark;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.service.PartitionedPaymentEngine;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Settlement throughput of the partitioned engine as the partition count grows. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PartitionedEngineBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int partitions;
+
+    private PartitionedPaymentEngine engine;
+    private PaymentService paymentService;
+    private List<String> accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserService userService = new UserService();
+        accountIds = BenchmarkData.registerUsers(userService, BenchmarkData.ACCOUNTS);
+        engine = new PartitionedPaymentEngine(partitions);
+        paymentService = new PaymentService(userService, engine);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Payment processPaymentAsync() {
+        return paymentService.processPaymentAsync(PaymentRequest.builder()
+                .setSenderUserId(randomAccount())
+                .setReceiverUserId(randomAccount())
+                .setAmountMinor(1 + ThreadLocalRandom.current().nextInt(10_000))
+                .build()).join();
+    }
+
+    private String randomAccount() {
+        return accountIds.get(ThreadLocalRandom.current().nextInt(accountIds.size()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.payment.paymentSystem.benchmark;
+
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.service.PaymentIngress;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Submission throughput through the ingress ring. Producers wait whenever the ring is full,
+ * so in steady state this measures how fast the consumer settles batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PaymentIngressBenchmark {
+
+    @Param({"YIELDING", "PARKING"})
+    public PaymentIngress.WaitStrategy waitStrategy;
+
+    private PaymentIngress ingress;
+    private List<String> accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        UserService userService = new UserService();
+        accountIds = BenchmarkData.registerUsers(userService, BenchmarkData.ACCOUNTS);
+        ingress = new PaymentIngress(new PaymentService(userService), null, PaymentIngress.DEFAULT_CAPACITY,
+                PaymentIngress.DEFAULT_MAX_BATCH, waitStrategy);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ingress.close();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long submit() {
+        return ingress.submit(randomAccount(), randomAccount(),
+                1 + ThreadLocalRandom.current().nextInt(10_000), Currency.GEL);
+    }
+
+    private String randomAccount() {
+        return accountIds.get(ThreadLocalRandom.current().nextInt(accountIds.size()));
+    }
+}
@@ -0,0 +1,102 @@
+package com.payment.paymentSystem.benchmark;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class PaymentServiceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int records;
+
+    private UserService userService;
+    private PaymentService paymentService;
+    private List<String> accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userService = new UserService();
+        paymentService = new PaymentService(userService);
+        accountIds = BenchmarkData.registerUsers(userService, BenchmarkData.ACCOUNTS);
+        BenchmarkData.processPayments(paymentService, accountIds, records);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Payment processPaymentSingleThread() {
+        return paymentService.processPayment(randomRequest());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Payment processPaymentMultiThread() {
+        return paymentService.processPayment(randomRequest());
+    }
+
+    @Benchmark
+    public List<Payment> getPaymentsByUserId() {
+        return paymentService.getPaymentsByUserId(randomAccount());
+    }
+
+    @Benchmark
+    public Optional<Payment> getPaymentByReference() {
+        return paymentService.getPaymentByReference(
+                BenchmarkData.reference(ThreadLocalRandom.current().nextInt(records)));
+    }
+
+    @Benchmark
+    public double getTotalPaymentsAmount() {
+        return paymentService.getTotalPaymentsAmount();
+    }
+
+    @Benchmark
+    public long getSuccessfulPaymentsCount() {
+        return paymentService.getSuccessfulPaymentsCount();
+    }
+
+    @Benchmark
+    public long getFailedPaymentsCount() {
+        return paymentService.getFailedPaymentsCount();
+    }
+
+    @Benchmark
+    public double getAveragePaymentAmount() {
+        return paymentService.getAveragePaymentAmount();
+    }
+
+    private PaymentRequest randomRequest() {
+        return PaymentRequest.builder()
+                .setSenderUserId(randomAccount())
+                .setReceiverUserId(randomAccount())
+                .setAmountMinor(1 + ThreadLocalRandom.current().nextInt(10_000))
+                .build();
+    }
+
+    private String randomAccount() {
+        return accountIds.get(ThreadLocalRandom.current().nextInt(accountIds.size()));
+    }
+}
@@ -0,0 +1,53 @@
+package com.payment.paymentSystem.benchmark;
+
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.service.UserService;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class UserServiceBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int records;
+
+    private UserService userService;
+    private AtomicInteger nextUser;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userService = new UserService();
+        BenchmarkData.registerUsers(userService, records);
+        nextUser = new AtomicInteger(records);
+    }
+
+    @Benchmark
+    public User registerUser() {
+        int index = nextUser.getAndIncrement();
+        return userService.registerUser("Bench", "User" + index, BenchmarkData.email(index), "555" + index);
+    }
+
+    @Benchmark
+    public Optional<User> findUserByEmail() {
+        return userService.findUserByEmail(BenchmarkData.email(ThreadLocalRandom.current().nextInt(records)));
+    }
+}
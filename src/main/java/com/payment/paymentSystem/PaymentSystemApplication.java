@@ -1,21 +1,42 @@
 package com.payment.paymentSystem;
 
+import com.payment.paymentSystem.clock.PaymentClock;
 import com.payment.paymentSystem.enums.Currency;
 import com.payment.paymentSystem.enums.PaymentMethod;
 import com.payment.paymentSystem.enums.PaymentStatus;
 import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentPage;
 import com.payment.paymentSystem.entity.PaymentRequest;
 import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.event.AsyncPaymentEventSink;
+import com.payment.paymentSystem.event.ConsolePaymentEventListener;
+import com.payment.paymentSystem.fx.FxRates;
+import com.payment.paymentSystem.journal.MappedPaymentJournal;
+import com.payment.paymentSystem.journal.PaymentJournal;
+import com.payment.paymentSystem.journal.SnapshotStore;
+import com.payment.paymentSystem.service.JournalRecovery;
+import com.payment.paymentSystem.service.PaymentSnapshotter;
 import com.payment.paymentSystem.service.PaymentService;
 import com.payment.paymentSystem.service.UserService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 public class PaymentSystemApplication {
 	private static final Scanner scanner = new Scanner(System.in);
+	private static final int PAGE_SIZE = 20;
+	private static AsyncPaymentEventSink eventSink;
+	private static MappedPaymentJournal journal;
+	private static PaymentSnapshotter snapshotter;
 	private static UserService userService;
 	private static PaymentService paymentService;
 
@@ -43,13 +64,38 @@ public class PaymentSystemApplication {
 	}
 
 	private static void initializeServices() {
-		userService = new UserService();
-		paymentService = new PaymentService(userService);
+		eventSink = new AsyncPaymentEventSink();
+		String journalDir = System.getProperty("payment.journal.dir");
+		try {
+			journal = journalDir == null ? null : MappedPaymentJournal.open(Path.of(journalDir));
+			userService = new UserService(eventSink, journal == null ? PaymentJournal.disabled() : journal, demoRates(),
+					PaymentClock.coarse());
+			paymentService = new PaymentService(userService);
+			if (journal != null) {
+				SnapshotStore snapshots = new SnapshotStore(Path.of(journalDir, "snapshots"));
+				JournalRecovery.recover(journal, snapshots, userService, paymentService);
+				System.out.println("Journal recovered from " + journalDir);
+				snapshotter = new PaymentSnapshotter(journal, snapshots, userService, paymentService);
+				snapshotter.start(Duration.ofSeconds(Long.getLong("payment.snapshot.interval.seconds", 60)));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open payment journal", e);
+		}
+		eventSink.subscribe(new ConsolePaymentEventListener(userService));
 		System.out.println("System initialized!");
 		System.out.println("Number of users: " + userService.getUserCount());
 		System.out.println();
 	}
 
+	private static FxRates demoRates() {
+		FxRates rates = new FxRates();
+		rates.setRate(Currency.USD, Currency.GEL, new BigDecimal("2.70"));
+		rates.setRate(Currency.EUR, Currency.GEL, new BigDecimal("2.95"));
+		rates.setRate(Currency.RUB, Currency.GEL, new BigDecimal("0.030"));
+		rates.setRate(Currency.TRY, Currency.GEL, new BigDecimal("0.082"));
+		return rates;
+	}
+
 	private static void runAutomaticDemo() {
 		System.out.println("=== Automatic Demo ===");
 
@@ -65,6 +111,7 @@ public class PaymentSystemApplication {
 		} catch (Exception e) {
 			System.out.println("Error: " + e.getMessage());
 		}
+		eventSink.flush();
 
 
 		System.out.println("\n3.Payment examples:");
@@ -89,6 +136,7 @@ public class PaymentSystemApplication {
 				.setReferenceNumber("REF001")
 				.build();
 		Payment payment1 = paymentService.processPayment(request1);
+		eventSink.flush();
 		System.out.println("Payment 1 status: " + payment1.getStatus());
 
 
@@ -102,6 +150,7 @@ public class PaymentSystemApplication {
 				.setReferenceNumber("REF002")
 				.build();
 		Payment payment2 = paymentService.processPayment(request2);
+		eventSink.flush();
 		System.out.println("Payment 2 status: " + payment2.getStatus());
 
 
@@ -115,6 +164,7 @@ public class PaymentSystemApplication {
 				.setReferenceNumber("REF003")
 				.build();
 		Payment payment3 = paymentService.processPayment(request3);
+		eventSink.flush();
 		System.out.println(" Payment 3 status: " + payment3.getStatus());
 		if (payment3.isFailed()) {
 			System.out.println(" Error reason: " + payment3.getErrorMessage());
@@ -136,11 +186,17 @@ public class PaymentSystemApplication {
 				case MENU_SHOW_STATISTICS -> showSystemStatistics();
 				case MENU_SHOW_PAYMENTS_BY_STATUS -> showPaymentsByStatus();
 				case MENU_EXIT -> {
+					eventSink.close();
+					if (journal != null) {
+						snapshotter.close();
+						journal.close();
+					}
 					System.out.println(" Thank you for using the payment system!");
 					return;
 				}
 				default -> System.out.println(" Invalid choice! Please try again.");
 			}
+			eventSink.flush();
 			System.out.println();
 		}
 	}
@@ -166,6 +222,11 @@ public class PaymentSystemApplication {
 			System.out.printf(" %s |  %s |  %s |  %.2f ₾ | %s%n",
 					user.getId(), user.getFullName(), user.getEmail(),
 					user.getBalance(), user.isActive() ? " Active" : " Inactive");
+			user.getWallets().forEach((currency, balance) -> {
+				if (currency != User.BALANCE_CURRENCY) {
+					System.out.println("      + " + balance);
+				}
+			});
 		}
 	}
 
@@ -182,6 +243,7 @@ public class PaymentSystemApplication {
 
 		try {
 			User user = userService.registerUser(firstName, lastName, email, phone);
+			eventSink.flush();
 			System.out.println(" User successfully registered!");
 			System.out.println(" User ID: " + user.getId());
 		} catch (Exception e) {
@@ -198,6 +260,7 @@ public class PaymentSystemApplication {
 
 		try {
 			boolean success = userService.addBalance(userId, amount);
+			eventSink.flush();
 			if (success) {
 				System.out.println(" Balance successfully added!");
 			} else {
@@ -246,9 +309,9 @@ public class PaymentSystemApplication {
 					.setCurrency(currency)
 					.setPaymentMethod(method)
 					.setDescription(description)
-					.setReferenceNumber("PAY_" + System.currentTimeMillis())
 					.build();
 			Payment payment = paymentService.processPayment(request);
+			eventSink.flush();
 
 			System.out.println(" Payment ID: " + payment.getId());
 			System.out.println(" Status: " + payment.getStatus());
@@ -268,22 +331,19 @@ public class PaymentSystemApplication {
 		System.out.print("User ID: ");
 		String userId = scanner.nextLine().trim();
 
-		List<Payment> payments = paymentService.getPaymentsByUserId(userId);
-		if (payments.isEmpty()) {
-			System.out.println(" No payments found.");
-			return;
-		}
-
 		System.out.println("=== Payment History ===");
-		for (Payment payment : payments) {
+		boolean found = printPages(cursor -> paymentService.getPaymentsByUserId(userId, PAGE_SIZE, cursor), payment -> {
 			String direction = userId.equals(payment.getSenderId()) ? "📤 Sent" : "📥 Received";
 			System.out.printf("%s | %s | %.2f %s | %s | %s%n",
 					payment.getId(), direction, payment.getAmount(),
 					payment.getCurrency().getSymbol(), payment.getStatus(),
 					payment.getCreatedAt().toString().substring(0, 19));
+		});
+		if (!found) {
+			System.out.println(" No payments found.");
+			return;
 		}
 
-
 		Map<String, Double> history = paymentService.getUserBalanceHistory(userId);
 		System.out.println("\n=== Balance History ===");
 		System.out.printf(" Sent: %.2f ₾%n", history.get("sent"));
@@ -293,18 +353,13 @@ public class PaymentSystemApplication {
 
 	private static void showAllPayments() {
 		System.out.println(" === All Payments ===");
-		List<Payment> payments = paymentService.getAllPayments();
-
-		if (payments.isEmpty()) {
+		boolean found = printPages(cursor -> paymentService.getAllPayments(PAGE_SIZE, cursor), payment ->
+				System.out.printf(" %s | %s ➡ %s | %.2f %s | %s | %s%n",
+						payment.getId(), payment.getSenderId(), payment.getReceiverId(),
+						payment.getAmount(), payment.getCurrency().getSymbol(),
+						payment.getStatus(), payment.getCreatedAt().toString().substring(0, 19)));
+		if (!found) {
 			System.out.println(" No payments found.");
-			return;
-		}
-
-		for (Payment payment : payments) {
-			System.out.printf(" %s | %s ➡ %s | %.2f %s | %s | %s%n",
-					payment.getId(), payment.getSenderId(), payment.getReceiverId(),
-					payment.getAmount(), payment.getCurrency().getSymbol(),
-					payment.getStatus(), payment.getCreatedAt().toString().substring(0, 19));
 		}
 	}
 
@@ -316,6 +371,11 @@ public class PaymentSystemApplication {
 		System.out.println("Successful payments: " + paymentService.getSuccessfulPaymentsCount());
 		System.out.println(" Failed payments: " + paymentService.getFailedPaymentsCount());
 		System.out.printf(" Total payment amount: %.2f ₾%n", paymentService.getTotalPaymentsAmount());
+		paymentService.getTotalPaymentsAmountByCurrency().forEach((currency, total) -> {
+			if (!total.isZero()) {
+				System.out.println("   in " + currency.name() + ": " + total);
+			}
+		});
 		System.out.printf(" Average payment: %.2f ₾%n", paymentService.getAveragePaymentAmount());
 		System.out.printf(" Total balance: %.2f ₾%n", userService.getTotalBalance());
 		System.out.printf(" Average balance: %.2f ₾%n", userService.getAverageBalance());
@@ -331,18 +391,30 @@ public class PaymentSystemApplication {
 		int choice = getIntInput("Choose status: ") - 1;
 		PaymentStatus status = statuses[choice];
 
-		List<Payment> payments = paymentService.getPaymentsByStatus(status);
-		if (payments.isEmpty()) {
+		System.out.println("=== Payments: " + status + " ===");
+		boolean found = printPages(cursor -> paymentService.getPaymentsByStatus(status, PAGE_SIZE, cursor), payment ->
+				System.out.printf(" %s | %s ️ %s | %.2f %s | %s%n",
+						payment.getId(), payment.getSenderId(), payment.getReceiverId(),
+						payment.getAmount(), payment.getCurrency().getSymbol(),
+						payment.getCreatedAt().toString().substring(0, 19)));
+		if (!found) {
 			System.out.println(" No payments found with this status.");
-			return;
 		}
+	}
 
-		System.out.println("=== Payments: " + status + " ===");
-		for (Payment payment : payments) {
-			System.out.printf(" %s | %s ️ %s | %.2f %s | %s%n",
-					payment.getId(), payment.getSenderId(), payment.getReceiverId(),
-					payment.getAmount(), payment.getCurrency().getSymbol(),
-					payment.getCreatedAt().toString().substring(0, 19));
+	private static boolean printPages(Function<String, PaymentPage> fetch, Consumer<Payment> printer) {
+		PaymentPage page = fetch.apply(null);
+		boolean found = !page.isEmpty();
+		while (true) {
+			page.getPayments().forEach(printer);
+			if (!page.hasMore()) {
+				return found;
+			}
+			System.out.print("Show more? (y/n): ");
+			if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+				return found;
+			}
+			page = fetch.apply(page.getNextCursor());
 		}
 	}
 
@@ -0,0 +1,50 @@
+package com.payment.paymentSystem.analytics;
+
+import java.util.LongSummaryStatistics;
+
+/**
+ * Count, sum, minimum and maximum of payment amounts in minor units.
+ */
+public final class AmountSummary {
+    private static final AmountSummary EMPTY = new AmountSummary(0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    private final long count;
+    private final long sumMinor;
+    private final long minMinor;
+    private final long maxMinor;
+
+    AmountSummary(long count, long sumMinor, long minMinor, long maxMinor) {
+        this.count = count;
+        this.sumMinor = sumMinor;
+        this.minMinor = minMinor;
+        this.maxMinor = maxMinor;
+    }
+
+    public static AmountSummary empty() {
+        return EMPTY;
+    }
+
+    public static AmountSummary of(LongSummaryStatistics statistics) {
+        if (statistics.getCount() == 0) {
+            return EMPTY;
+        }
+        return new AmountSummary(statistics.getCount(), statistics.getSum(), statistics.getMin(), statistics.getMax());
+    }
+
+    public AmountSummary combine(AmountSummary other) {
+        return new AmountSummary(count + other.count, Math.addExact(sumMinor, other.sumMinor),
+                Math.min(minMinor, other.minMinor), Math.max(maxMinor, other.maxMinor));
+    }
+
+    public long getCount() { return count; }
+    public long getSumMinor() { return sumMinor; }
+    public long getMinMinor() { return count == 0 ? 0 : minMinor; }
+    public long getMaxMinor() { return count == 0 ? 0 : maxMinor; }
+    public double getAverageMinor() { return count == 0 ? 0.0 : (double) sumMinor / count; }
+
+    @Override
+    public String toString() {
+        return "AmountSummary{count=" + count + ", sumMinor=" + sumMinor
+                + ", minMinor=" + getMinMinor() + ", maxMinor=" + getMaxMinor() + '}';
+    }
+}
@@ -0,0 +1,214 @@
+package com.payment.paymentSystem.analytics;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Struct-of-arrays copy of the payment store for analytics scans. Each column is a primitive
+ * array split into fixed-size chunks, so appends never copy and a scan over amounts, statuses
+ * and timestamps runs as a tight loop over contiguous memory. Chunks are scanned in parallel
+ * once the store is large enough to make that worthwhile.
+ *
+ * <p>Rows are append-only; only the status column changes afterwards. A row becomes visible
+ * to scans when its status byte is published, which happens after every other column is set.
+ * Eviction hides rows, and a chunk is released once all of its rows are evicted. Rows arrive in
+ * creation order, so retention frees whole chunks from the front of the store.
+ */
+public final class PaymentColumnStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int PARALLEL_THRESHOLD = 4 * CHUNK_SIZE;
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private final AtomicInteger rowCount = new AtomicInteger();
+    private volatile Chunks chunks = new Chunks(0, new Chunk[0]);
+
+    private static final class Chunk {
+        final long[] amountMinor = new long[CHUNK_SIZE];
+        final long[] createdMicros = new long[CHUNK_SIZE];
+        final byte[] currency = new byte[CHUNK_SIZE];
+        final byte[] method = new byte[CHUNK_SIZE];
+        // status ordinal + 1; 0 marks a row that is not yet published or was evicted
+        final byte[] status = new byte[CHUNK_SIZE];
+        final AtomicInteger published = new AtomicInteger();
+
+        boolean isEvicted() {
+            if (published.get() != CHUNK_SIZE) {
+                return false;
+            }
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                if ((byte) STATUS.getAcquire(status, i) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The chunks from index {@code first} on; earlier ones were released by eviction. */
+    private static final class Chunks {
+        final int first;
+        final Chunk[] array;
+
+        Chunks(int first, Chunk[] array) {
+            this.first = first;
+            this.array = array;
+        }
+
+        int end() {
+            return first + array.length;
+        }
+
+        Chunk get(int index) {
+            return array[index - first];
+        }
+    }
+
+    /** @return the row assigned to the payment, to be passed to {@link #updateStatus} */
+    public int append(Payment payment) {
+        int row = rowCount.getAndIncrement();
+        Chunk chunk = chunkFor(row);
+        int i = row & CHUNK_MASK;
+        chunk.amountMinor[i] = payment.getAmountMinor();
+        chunk.createdMicros[i] = payment.getCreatedAtMicros();
+        chunk.currency[i] = ordinal(payment.getCurrency());
+        chunk.method[i] = ordinal(payment.getPaymentMethod());
+        STATUS.setRelease(chunk.status, i, (byte) (payment.getStatus().ordinal() + 1));
+        chunk.published.incrementAndGet();
+        return row;
+    }
+
+    /** Records a status change; a row already evicted stays hidden. */
+    public void updateStatus(int row, PaymentStatus status) {
+        Chunks snapshot = chunks;
+        int index = row >>> CHUNK_BITS;
+        if (index < snapshot.first) {
+            return;
+        }
+        byte[] statuses = snapshot.get(index).status;
+        int i = row & CHUNK_MASK;
+        byte current;
+        do {
+            current = (byte) STATUS.getAcquire(statuses, i);
+            if (current == 0) {
+                return;
+            }
+        } while (!STATUS.compareAndSet(statuses, i, current, (byte) (status.ordinal() + 1)));
+    }
+
+    /**
+     * Hides rows created before {@code cutoffMicros} from all further scans, then releases
+     * the leading chunks whose rows are all evicted.
+     */
+    public void evictCreatedBefore(long cutoffMicros) {
+        Chunks snapshot = chunks;
+        int rows = Math.min(rowCount.get(), snapshot.end() * CHUNK_SIZE);
+        for (int c = snapshot.first; c << CHUNK_BITS < rows; c++) {
+            Chunk chunk = snapshot.get(c);
+            int limit = Math.min(CHUNK_SIZE, rows - (c << CHUNK_BITS));
+            for (int i = 0; i < limit; i++) {
+                if (chunk.createdMicros[i] < cutoffMicros && (byte) STATUS.getAcquire(chunk.status, i) != 0) {
+                    STATUS.setRelease(chunk.status, i, (byte) 0);
+                }
+            }
+        }
+        releaseEvictedChunks();
+    }
+
+    /** Rows held, counting evicted rows whose chunk is not yet released. */
+    public int size() {
+        return rowCount.get() - chunks.first * CHUNK_SIZE;
+    }
+
+    public AmountSummary summarize(PaymentQuery query) {
+        Chunks snapshot = chunks;
+        int rows = Math.min(rowCount.get(), snapshot.end() * CHUNK_SIZE);
+        IntStream chunkIndexes = IntStream.range(snapshot.first, (rows + CHUNK_MASK) >>> CHUNK_BITS);
+        if (rows - snapshot.first * CHUNK_SIZE >= PARALLEL_THRESHOLD) {
+            chunkIndexes = chunkIndexes.parallel();
+        }
+        return chunkIndexes
+                .mapToObj(c -> summarizeChunk(snapshot.get(c), Math.min(CHUNK_SIZE, rows - (c << CHUNK_BITS)), query))
+                .reduce(AmountSummary.empty(), AmountSummary::combine);
+    }
+
+    private static AmountSummary summarizeChunk(Chunk chunk, int limit, PaymentQuery query) {
+        long count = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long[] amounts = chunk.amountMinor;
+        for (int i = 0; i < limit; i++) {
+            if (matches(chunk, i, query)) {
+                long amount = amounts[i];
+                count++;
+                sum = Math.addExact(sum, amount);
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+            }
+        }
+        return count == 0 ? AmountSummary.empty() : new AmountSummary(count, sum, min, max);
+    }
+
+    private static boolean matches(Chunk chunk, int i, PaymentQuery query) {
+        byte status = (byte) STATUS.getAcquire(chunk.status, i);
+        if (status == 0) {
+            return false;
+        }
+        if (query.status != null && status != query.status.ordinal() + 1) {
+            return false;
+        }
+        if (query.currency != null && chunk.currency[i] != query.currency.ordinal()) {
+            return false;
+        }
+        if (query.paymentMethod != null && chunk.method[i] != query.paymentMethod.ordinal()) {
+            return false;
+        }
+        long amount = chunk.amountMinor[i];
+        long created = chunk.createdMicros[i];
+        return amount >= query.minAmountMinor && amount <= query.maxAmountMinor
+                && created >= query.fromMicros && created < query.toMicros;
+    }
+
+    private Chunk chunkFor(int row) {
+        int index = row >>> CHUNK_BITS;
+        Chunks current = chunks;
+        if (index < current.end()) {
+            return current.get(index);
+        }
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.end()) {
+                Chunk[] grown = Arrays.copyOf(current.array, index + 1 - current.first);
+                for (int c = current.array.length; c < grown.length; c++) {
+                    grown[c] = new Chunk();
+                }
+                current = new Chunks(current.first, grown);
+                chunks = current;
+            }
+            return current.get(index);
+        }
+    }
+
+    private synchronized void releaseEvictedChunks() {
+        Chunks current = chunks;
+        int released = 0;
+        while (released < current.array.length && current.array[released].isEvicted()) {
+            released++;
+        }
+        if (released > 0) {
+            chunks = new Chunks(current.first + released,
+                    Arrays.copyOfRange(current.array, released, current.array.length));
+        }
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? -1 : (byte) value.ordinal();
+    }
+}
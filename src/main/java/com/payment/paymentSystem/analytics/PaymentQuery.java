@@ -0,0 +1,77 @@
+package com.payment.paymentSystem.analytics;
+
+import com.payment.paymentSystem.codec.BinaryFormat;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable filter for payment scans. Every bound is optional; amount bounds are inclusive
+ * minor units, time bounds are {@code [from, to)} on {@code createdAt}.
+ */
+public final class PaymentQuery {
+    private static final PaymentQuery ALL = new PaymentQuery(null, null, null, Long.MIN_VALUE, Long.MAX_VALUE,
+            Long.MIN_VALUE + 1, Long.MAX_VALUE);
+
+    final PaymentStatus status;
+    final Currency currency;
+    final PaymentMethod paymentMethod;
+    final long minAmountMinor;
+    final long maxAmountMinor;
+    final long fromMicros;
+    final long toMicros;
+
+    private PaymentQuery(PaymentStatus status, Currency currency, PaymentMethod paymentMethod, long minAmountMinor, long maxAmountMinor,
+                         long fromMicros, long toMicros) {
+        this.status = status;
+        this.currency = currency;
+        this.paymentMethod = paymentMethod;
+        this.minAmountMinor = minAmountMinor;
+        this.maxAmountMinor = maxAmountMinor;
+        this.fromMicros = fromMicros;
+        this.toMicros = toMicros;
+    }
+
+    public static PaymentQuery all() {
+        return ALL;
+    }
+
+    public PaymentQuery withStatus(PaymentStatus status) {
+        return new PaymentQuery(status, currency, paymentMethod, minAmountMinor, maxAmountMinor, fromMicros, toMicros);
+    }
+
+    public PaymentQuery withCurrency(Currency currency) {
+        return new PaymentQuery(status, currency, paymentMethod, minAmountMinor, maxAmountMinor, fromMicros, toMicros);
+    }
+
+    public PaymentQuery withPaymentMethod(PaymentMethod paymentMethod) {
+        return new PaymentQuery(status, currency, paymentMethod, minAmountMinor, maxAmountMinor, fromMicros, toMicros);
+    }
+
+    public PaymentQuery withAmountBetween(long minAmountMinor, long maxAmountMinor) {
+        return new PaymentQuery(status, currency, paymentMethod, minAmountMinor, maxAmountMinor, fromMicros, toMicros);
+    }
+
+    public PaymentQuery withCreatedBetween(LocalDateTime from, LocalDateTime to) {
+        return new PaymentQuery(status, currency, paymentMethod, minAmountMinor, maxAmountMinor,
+                from == null ? ALL.fromMicros : BinaryFormat.toEpochMicros(from),
+                to == null ? ALL.toMicros : BinaryFormat.toEpochMicros(to));
+    }
+
+    public boolean matches(Payment payment) {
+        if (status != null && payment.getStatus() != status) {
+            return false;
+        }
+        if (currency != null && payment.getCurrency() != currency) {
+            return false;
+        }
+        if (paymentMethod != null && payment.getPaymentMethod() != paymentMethod) {
+            return false;
+        }
+        long amount = payment.getAmountMinor();
+        long created = payment.getCreatedAtMicros();
+        return amount >= minAmountMinor && amount <= maxAmountMinor && created >= fromMicros && created < toMicros;
+    }
+}
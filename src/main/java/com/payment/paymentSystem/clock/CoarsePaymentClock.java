@@ -0,0 +1,35 @@
+package com.payment.paymentSystem.clock;
+
+import java.util.concurrent.locks.LockSupport;
+
+/** {@link PaymentClock} that a daemon thread refreshes from the system clock every millisecond. */
+final class CoarsePaymentClock implements PaymentClock {
+    private static final long TICK_NANOS = 1_000_000L;
+
+    private final PaymentClock source;
+    private volatile long micros;
+
+    CoarsePaymentClock(PaymentClock source) {
+        this.source = source;
+        this.micros = source.currentTimeMicros();
+        Thread ticker = new Thread(this::tick, "payment-clock");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        return micros;
+    }
+
+    private void tick() {
+        while (true) {
+            LockSupport.parkNanos(TICK_NANOS);
+            micros = source.currentTimeMicros();
+        }
+    }
+
+    static final class Holder {
+        static final CoarsePaymentClock INSTANCE = new CoarsePaymentClock(PaymentClock.system());
+    }
+}
@@ -0,0 +1,52 @@
+package com.payment.paymentSystem.clock;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Source of payment timestamps: microseconds since 1970-01-01T00:00Z, the same convention the
+ * binary codecs use. Entities keep timestamps in this form and only build {@link LocalDateTime}s,
+ * in the system time zone, when asked, so a DST change never moves a stored timestamp.
+ * Tests can pass a lambda for deterministic time.
+ */
+@FunctionalInterface
+public interface PaymentClock {
+    /** Stands for a missing timestamp, as it does in the binary codecs. */
+    long NO_TIME = Long.MIN_VALUE;
+
+    long currentTimeMicros();
+
+    /** Reads the system clock on every call. */
+    static PaymentClock system() {
+        return SystemPaymentClock.INSTANCE;
+    }
+
+    /**
+     * A shared clock refreshed by a background thread once a millisecond, so reading it is a
+     * single volatile load. Use it where millisecond precision is enough.
+     */
+    static PaymentClock coarse() {
+        return CoarsePaymentClock.Holder.INSTANCE;
+    }
+
+    static long toMicros(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return time.toEpochSecond(SystemPaymentClock.offsetAt(time)) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    static LocalDateTime toLocalDateTime(long micros) {
+        if (micros == NO_TIME) {
+            return null;
+        }
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        return LocalDateTime.ofEpochSecond(seconds, (int) Math.floorMod(micros, 1_000_000L) * 1_000,
+                SystemPaymentClock.offsetAt(seconds));
+    }
+
+    static LocalDate toLocalDate(long micros) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        return LocalDate.ofEpochDay(Math.floorDiv(seconds + SystemPaymentClock.offsetAt(seconds).getTotalSeconds(), 86_400L));
+    }
+}
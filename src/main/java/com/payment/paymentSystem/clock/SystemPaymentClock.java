@@ -0,0 +1,32 @@
+package com.payment.paymentSystem.clock;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+
+/** {@link PaymentClock} over {@link Instant#now()}; also holds the system time zone used for local times. */
+final class SystemPaymentClock implements PaymentClock {
+    static final SystemPaymentClock INSTANCE = new SystemPaymentClock();
+
+    private static final ZoneRules RULES = ZoneId.systemDefault().getRules();
+
+    private SystemPaymentClock() {
+    }
+
+    @Override
+    public long currentTimeMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    static ZoneOffset offsetAt(long epochSecond) {
+        return RULES.getOffset(Instant.ofEpochSecond(epochSecond));
+    }
+
+    /** For a local time a DST change repeats, the earlier offset; for one it skips, the offset before the gap. */
+    static ZoneOffset offsetAt(LocalDateTime time) {
+        return RULES.getOffset(time);
+    }
+}
@@ -0,0 +1,126 @@
+package com.payment.paymentSystem.codec;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Field encoders shared by the entity codecs. Strings are an {@code int} UTF-8 byte length
+ * ({@code -1} for null) followed by the bytes, written char by char so encoding never allocates;
+ * a lone surrogate is written as {@code '?'}, like {@link String#getBytes} does.
+ * Timestamps are microseconds since 1970-01-01T00:00Z, {@link Long#MIN_VALUE} for null, with
+ * {@link LocalDateTime}s taken to be in the system time zone; enums are one ordinal byte,
+ * {@code -1} for null.
+ */
+public final class BinaryFormat {
+    public static final long NULL_TIME = PaymentClock.NO_TIME;
+
+    private BinaryFormat() {
+    }
+
+    public static int stringSize(String value) {
+        if (value == null) {
+            return 4;
+        }
+        int bytes = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1; // written as '?'
+            } else {
+                bytes += 3;
+            }
+        }
+        return 4 + bytes;
+    }
+
+    public static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+    }
+
+    public static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(toEpochMicros(time));
+    }
+
+    public static LocalDateTime getTime(ByteBuffer buffer) {
+        return fromEpochMicros(buffer.getLong());
+    }
+
+    public static long toEpochMicros(LocalDateTime time) {
+        return PaymentClock.toMicros(time);
+    }
+
+    public static LocalDateTime fromEpochMicros(long micros) {
+        return PaymentClock.toLocalDateTime(micros);
+    }
+
+    public static void putEnum(ByteBuffer buffer, Enum<?> value) {
+        buffer.put(value == null ? -1 : (byte) value.ordinal());
+    }
+
+    public static <E extends Enum<E>> E getEnum(ByteBuffer buffer, E[] values) {
+        byte ordinal = buffer.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    static void checkVersion(ByteBuffer buffer, byte expected, String type) {
+        byte version = buffer.get();
+        if (version != expected) {
+            throw new IllegalArgumentException("Unsupported " + type + " encoding version: " + version);
+        }
+    }
+}
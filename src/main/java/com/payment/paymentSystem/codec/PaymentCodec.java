@@ -0,0 +1,87 @@
+package com.payment.paymentSystem.codec;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentIdGenerator;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary layout of a {@link Payment}: a version byte and the fixed-width fields
+ * (id as one long, amount, currency, method, status, settlement step and reservation,
+ * created and updated micros),
+ * followed by the sender, receiver, description, reference and error strings.
+ */
+public final class PaymentCodec {
+    public static final byte VERSION = 1;
+
+    private static final int FIXED_SIZE = 1 + 8 + 8 + 3 + 2 + 8 + 8 + 8;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    private static final SettlementStep[] SETTLEMENT_STEPS = SettlementStep.values();
+
+    private PaymentCodec() {
+    }
+
+    public static int encodedSize(Payment payment) {
+        return FIXED_SIZE
+                + BinaryFormat.stringSize(payment.getSenderId())
+                + BinaryFormat.stringSize(payment.getReceiverId())
+                + BinaryFormat.stringSize(payment.getDescription())
+                + BinaryFormat.stringSize(payment.getReference())
+                + BinaryFormat.stringSize(payment.getErrorMessage());
+    }
+
+    public static void encode(Payment payment, ByteBuffer buffer) {
+        long id = PaymentIdGenerator.parse(payment.getId());
+        if (id < 0) {
+            throw new IllegalArgumentException("Not a generated payment id: " + payment.getId());
+        }
+        buffer.put(VERSION);
+        buffer.putLong(id);
+        buffer.putLong(payment.getAmountMinor());
+        BinaryFormat.putEnum(buffer, payment.getCurrency());
+        BinaryFormat.putEnum(buffer, payment.getPaymentMethod());
+        BinaryFormat.putEnum(buffer, payment.getStatus());
+        Money reservation = payment.getReservation();
+        BinaryFormat.putEnum(buffer, payment.getSettlement());
+        BinaryFormat.putEnum(buffer, reservation != null ? reservation.getCurrency() : payment.getCurrency());
+        buffer.putLong(reservation != null ? reservation.getMinorUnits() : 0);
+        buffer.putLong(payment.getCreatedAtMicros());
+        buffer.putLong(payment.getUpdatedAtMicros());
+        BinaryFormat.putString(buffer, payment.getSenderId());
+        BinaryFormat.putString(buffer, payment.getReceiverId());
+        BinaryFormat.putString(buffer, payment.getDescription());
+        BinaryFormat.putString(buffer, payment.getReference());
+        BinaryFormat.putString(buffer, payment.getErrorMessage());
+    }
+
+    /** @param clock stamps the transitions the decoded payment goes through from here on */
+    public static Payment decode(ByteBuffer buffer, PaymentClock clock) {
+        BinaryFormat.checkVersion(buffer, VERSION, "payment");
+        Payment payment = new Payment(buffer.getLong(), clock);
+        long amountMinor = buffer.getLong();
+        payment.setCurrency(BinaryFormat.getEnum(buffer, CURRENCIES));
+        payment.setAmountMinor(amountMinor);
+        payment.setPaymentMethod(BinaryFormat.getEnum(buffer, METHODS));
+        payment.setStatus(BinaryFormat.getEnum(buffer, STATUSES));
+        SettlementStep settlement = BinaryFormat.getEnum(buffer, SETTLEMENT_STEPS);
+        Currency reservedCurrency = BinaryFormat.getEnum(buffer, CURRENCIES);
+        long reservedMinor = buffer.getLong();
+        payment.setSettlement(settlement, reservedMinor > 0 ? Money.ofMinor(reservedMinor, reservedCurrency) : null);
+        payment.setCreatedAtMicros(buffer.getLong());
+        payment.setUpdatedAtMicros(buffer.getLong());
+        payment.setSenderId(BinaryFormat.getString(buffer));
+        payment.setReceiverId(BinaryFormat.getString(buffer));
+        payment.setDescription(BinaryFormat.getString(buffer));
+        payment.setReference(BinaryFormat.getString(buffer));
+        payment.setErrorMessage(BinaryFormat.getString(buffer));
+        return payment;
+    }
+}
@@ -0,0 +1,60 @@
+package com.payment.paymentSystem.codec;
+
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary layout of a {@link PaymentRequest}: a version byte, amount in minor units, currency
+ * and method, followed by the sender, receiver, description, reference and idempotency key strings.
+ */
+public final class PaymentRequestCodec {
+    public static final byte VERSION = 1;
+
+    private static final int FIXED_SIZE = 1 + 8 + 2;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+
+    private PaymentRequestCodec() {
+    }
+
+    public static int encodedSize(PaymentRequest request) {
+        return FIXED_SIZE
+                + BinaryFormat.stringSize(request.getSenderUserId())
+                + BinaryFormat.stringSize(request.getReceiverUserId())
+                + BinaryFormat.stringSize(request.getDescription())
+                + BinaryFormat.stringSize(request.getReferenceNumber())
+                + BinaryFormat.stringSize(request.getIdempotencyKey());
+    }
+
+    public static void encode(PaymentRequest request, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        buffer.putLong(request.getAmountMinor());
+        BinaryFormat.putEnum(buffer, request.getCurrency());
+        BinaryFormat.putEnum(buffer, request.getPaymentMethod());
+        BinaryFormat.putString(buffer, request.getSenderUserId());
+        BinaryFormat.putString(buffer, request.getReceiverUserId());
+        BinaryFormat.putString(buffer, request.getDescription());
+        BinaryFormat.putString(buffer, request.getReferenceNumber());
+        BinaryFormat.putString(buffer, request.getIdempotencyKey());
+    }
+
+    public static PaymentRequest decode(ByteBuffer buffer) {
+        BinaryFormat.checkVersion(buffer, VERSION, "payment request");
+        long amountMinor = buffer.getLong();
+        Currency currency = BinaryFormat.getEnum(buffer, CURRENCIES);
+        PaymentMethod paymentMethod = BinaryFormat.getEnum(buffer, METHODS);
+        return PaymentRequest.builder()
+                .setAmountMinor(amountMinor)
+                .setCurrency(currency)
+                .setPaymentMethod(paymentMethod)
+                .setSenderUserId(BinaryFormat.getString(buffer))
+                .setReceiverUserId(BinaryFormat.getString(buffer))
+                .setDescription(BinaryFormat.getString(buffer))
+                .setReferenceNumber(BinaryFormat.getString(buffer))
+                .setIdempotencyKey(BinaryFormat.getString(buffer))
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.payment.paymentSystem.codec;
+
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary layout of a {@link User}: a version byte, balance in minor units, active flag and
+ * created micros, followed by the id, first name, last name, email and phone strings, then a
+ * count and {@code [currency][balance]} pairs for the other wallets.
+ */
+public final class UserCodec {
+    public static final byte VERSION = 1;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    // Every other wallet is always written, so the size does not depend on balances read mid-update
+    private static final int FIXED_SIZE = 1 + 8 + 1 + 8 + 1 + (CURRENCIES.length - 1) * (1 + 8);
+
+    private UserCodec() {
+    }
+
+    public static int encodedSize(User user) {
+        return FIXED_SIZE
+                + BinaryFormat.stringSize(user.getId())
+                + BinaryFormat.stringSize(user.getFirstName())
+                + BinaryFormat.stringSize(user.getLastName())
+                + BinaryFormat.stringSize(user.getEmail())
+                + BinaryFormat.stringSize(user.getPhoneNumber());
+    }
+
+    public static void encode(User user, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        buffer.putLong(user.getBalanceMinor());
+        buffer.put((byte) (user.isActive() ? 1 : 0));
+        BinaryFormat.putTime(buffer, user.getCreatedAt());
+        BinaryFormat.putString(buffer, user.getId());
+        BinaryFormat.putString(buffer, user.getFirstName());
+        BinaryFormat.putString(buffer, user.getLastName());
+        BinaryFormat.putString(buffer, user.getEmail());
+        BinaryFormat.putString(buffer, user.getPhoneNumber());
+        buffer.put((byte) (CURRENCIES.length - 1));
+        for (Currency currency : CURRENCIES) {
+            if (currency != User.BALANCE_CURRENCY) {
+                BinaryFormat.putEnum(buffer, currency);
+                buffer.putLong(user.getBalanceMinor(currency));
+            }
+        }
+    }
+
+    public static User decode(ByteBuffer buffer) {
+        BinaryFormat.checkVersion(buffer, VERSION, "user");
+        long balanceMinor = buffer.getLong();
+        boolean active = buffer.get() == 1;
+        User user = new User();
+        user.setCreatedAt(BinaryFormat.getTime(buffer));
+        user.setId(BinaryFormat.getString(buffer));
+        user.setFirstName(BinaryFormat.getString(buffer));
+        user.setLastName(BinaryFormat.getString(buffer));
+        user.setEmail(BinaryFormat.getString(buffer));
+        user.setPhoneNumber(BinaryFormat.getString(buffer));
+        user.setBalanceMinor(balanceMinor);
+        int wallets = buffer.get();
+        for (int i = 0; i < wallets; i++) {
+            Currency currency = BinaryFormat.getEnum(buffer, CURRENCIES);
+            user.setBalanceMinor(currency, buffer.getLong());
+        }
+        user.setActive(active);
+        return user;
+    }
+}
@@ -0,0 +1,171 @@
+package com.payment.paymentSystem.entity;
+
+import com.payment.paymentSystem.enums.Currency;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Registry of users that keeps every account in a dense int slot. An account's wallets and
+ * flags are one row of a chunked {@code long[]}, so balance updates and scans touch primitive
+ * arrays only; the id-to-slot map is consulted once, where a request names a user.
+ *
+ * <p>Rows are read with acquire and written with release semantics. Like {@link User}'s balance
+ * methods, a read-modify-write of one account is not atomic; callers serialize them per account.
+ */
+public final class AccountTable {
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final int FLAGS = CURRENCIES.length;
+    private static final int ROW = CURRENCIES.length + 1;
+    private static final long ACTIVE = 1;
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle USERS = MethodHandles.arrayElementVarHandle(User[].class);
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger allocated = new AtomicInteger();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    /**
+     * Gives {@code user} a slot, or takes over the slot already registered for its id, and
+     * moves its balances and active flag into the table. From then on the user reads and
+     * writes its row.
+     *
+     * @return the user's slot
+     */
+    public int register(User user) {
+        Integer existing = slots.get(user.getId());
+        if (existing != null) {
+            fill(existing, user);
+            return existing;
+        }
+        // The row is filled inside computeIfAbsent, so a slot is only allocated for the winning
+        // registration and no reader sees the id before its row is set up
+        int[] allocatedSlot = {-1};
+        int slot = slots.computeIfAbsent(user.getId(), id -> {
+            allocatedSlot[0] = allocate();
+            fill(allocatedSlot[0], user);
+            return allocatedSlot[0];
+        });
+        if (slot != allocatedSlot[0]) {
+            throw new IllegalStateException("Account already registered: " + user.getId());
+        }
+        return slot;
+    }
+
+    /** @return the slot of the user with {@code id}, or {@code -1} if there is none */
+    public int slotOf(String id) {
+        Integer slot = id == null ? null : slots.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    public User user(int slot) {
+        return (User) USERS.getAcquire(chunk(slot).users, slot & CHUNK_MASK);
+    }
+
+    public User find(String id) {
+        int slot = slotOf(id);
+        return slot < 0 ? null : user(slot);
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /** Registered users in slot order. */
+    public Stream<User> users() {
+        return slotRange().mapToObj(this::user).filter(Objects::nonNull);
+    }
+
+    /** Balances of active accounts in {@code currency}, read straight from the rows. */
+    public LongStream activeBalancesMinor(Currency currency) {
+        return slotRange()
+                .filter(slot -> user(slot) != null && isActive(slot))
+                .mapToLong(slot -> getBalanceMinor(slot, currency));
+    }
+
+    public long getBalanceMinor(int slot, Currency currency) {
+        return (long) LONGS.getAcquire(chunk(slot).rows, (slot & CHUNK_MASK) * ROW + currency.ordinal());
+    }
+
+    public void setBalanceMinor(int slot, Currency currency, long balanceMinor) {
+        LONGS.setRelease(chunk(slot).rows, (slot & CHUNK_MASK) * ROW + currency.ordinal(), Math.max(0, balanceMinor));
+    }
+
+    public void addToBalanceMinor(int slot, Currency currency, long amountMinor) {
+        if (amountMinor > 0) {
+            setBalanceMinor(slot, currency, Money.add(getBalanceMinor(slot, currency), amountMinor));
+        }
+    }
+
+    public boolean deductFromBalanceMinor(int slot, Currency currency, long amountMinor) {
+        long balance = getBalanceMinor(slot, currency);
+        if (amountMinor > 0 && balance >= amountMinor) {
+            setBalanceMinor(slot, currency, balance - amountMinor);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isActive(int slot) {
+        return ((long) LONGS.getAcquire(chunk(slot).rows, (slot & CHUNK_MASK) * ROW + FLAGS) & ACTIVE) != 0;
+    }
+
+    public void setActive(int slot, boolean active) {
+        LONGS.setRelease(chunk(slot).rows, (slot & CHUNK_MASK) * ROW + FLAGS, active ? ACTIVE : 0);
+    }
+
+    private void fill(int slot, User user) {
+        Chunk chunk = chunk(slot);
+        int row = (slot & CHUNK_MASK) * ROW;
+        for (Currency currency : CURRENCIES) {
+            LONGS.setRelease(chunk.rows, row + currency.ordinal(), user.getBalanceMinor(currency));
+        }
+        LONGS.setRelease(chunk.rows, row + FLAGS, user.isActive() ? ACTIVE : 0);
+        USERS.setRelease(chunk.users, slot & CHUNK_MASK, user);
+        user.bind(this, slot);
+    }
+
+    private IntStream slotRange() {
+        return IntStream.range(0, Math.min(allocated.get(), chunks.length << CHUNK_BITS));
+    }
+
+    private Chunk chunk(int slot) {
+        return chunks[slot >>> CHUNK_BITS];
+    }
+
+    private int allocate() {
+        int slot = allocated.getAndIncrement();
+        if (slot < 0) {
+            throw new IllegalStateException("Account table is full");
+        }
+        int index = slot >>> CHUNK_BITS;
+        if (index >= chunks.length) {
+            synchronized (this) {
+                Chunk[] current = chunks;
+                if (index >= current.length) {
+                    Chunk[] grown = Arrays.copyOf(current, index + 1);
+                    for (int i = current.length; i < grown.length; i++) {
+                        grown[i] = new Chunk();
+                    }
+                    chunks = grown;
+                }
+            }
+        }
+        return slot;
+    }
+
+    private static final class Chunk {
+        final long[] rows = new long[CHUNK_SIZE * ROW];
+        final User[] users = new User[CHUNK_SIZE];
+    }
+}
@@ -0,0 +1,113 @@
+package com.payment.paymentSystem.entity;
+
+import com.payment.paymentSystem.enums.Currency;
+import java.util.Objects;
+
+/**
+ * Exact money amount stored as a {@code long} count of minor units (tetri, cents).
+ * The static helpers work on raw minor-unit longs so hot paths never allocate;
+ * all arithmetic throws {@link ArithmeticException} on overflow.
+ */
+public final class Money implements Comparable<Money> {
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        this.minorUnits = minorUnits;
+        this.currency = Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(double amount, Currency currency) {
+        return new Money(toMinor(amount, currency), currency);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    public static long toMinor(double amount, Currency currency) {
+        double scaled = amount * currency.getMinorUnitsPerMajor();
+        if (Double.isNaN(scaled) || scaled >= 0x1p63 || scaled < -0x1p63) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+        return Math.round(scaled);
+    }
+
+    public static double toMajor(long minorUnits, Currency currency) {
+        return (double) minorUnits / currency.getMinorUnitsPerMajor();
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    public static long multiply(long minorUnits, long factor) {
+        return Math.multiplyExact(minorUnits, factor);
+    }
+
+    public long getMinorUnits() { return minorUnits; }
+    public Currency getCurrency() { return currency; }
+    public double toDouble() { return toMajor(minorUnits, currency); }
+
+    public boolean isZero() { return minorUnits == 0; }
+    public boolean isPositive() { return minorUnits > 0; }
+    public boolean isNegative() { return minorUnits < 0; }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(add(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(subtract(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency.name() + " vs " + other.currency.name());
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency == money.currency;
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(minorUnits, currency); }
+
+    @Override
+    public String toString() {
+        long scale = currency.getMinorUnitsPerMajor();
+        long major = Math.abs(minorUnits / scale);
+        long minor = Math.abs(minorUnits % scale);
+        String sign = minorUnits < 0 ? "-" : "";
+        if (currency.getFractionDigits() == 0) {
+            return sign + major + " " + currency.getSymbol();
+        }
+        String fraction = String.format("%0" + currency.getFractionDigits() + "d", minor);
+        return sign + major + "." + fraction + " " + currency.getSymbol();
+    }
+}
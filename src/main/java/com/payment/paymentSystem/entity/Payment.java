@@ -1,40 +1,71 @@
 package com.payment.paymentSystem.entity;
 
+import com.payment.paymentSystem.clock.PaymentClock;
 import com.payment.paymentSystem.enums.Currency;
 import com.payment.paymentSystem.enums.PaymentMethod;
 import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
 import java.time.LocalDateTime;
 import java.util.Objects;
-import java.util.UUID;
 
 public class Payment {
+
+    public interface StatusListener {
+        void onStatusChanged(Payment payment, PaymentStatus previous, PaymentStatus current);
+    }
+
     private String id;
+    /** {@link PaymentIdGenerator} id behind {@link #id}, or -1 for ids from before time-ordered ids. */
+    private long numericId;
     private String senderId;
     private String receiverId;
-    private double amount;
+    private long amountMinor;
     private Currency currency;
     private PaymentMethod paymentMethod;
-    private PaymentStatus status;
+    private volatile PaymentStatus status;
     private String description;
     private String reference;
-    private LocalDateTime createdAt;
-    private LocalDateTime updatedAt;
+    /** Timestamps in {@link PaymentClock} microseconds; {@link LocalDateTime}s are only built by the getters. */
+    private long createdAtMicros;
+    private long updatedAtMicros;
     private String errorMessage;
+    private volatile SettlementStep settlement = SettlementStep.NONE;
+    /** What the sender was charged, possibly in another wallet after conversion; set from {@code RESERVED} on. */
+    private volatile Money reservation;
+    private StatusListener statusListener;
+    private final PaymentClock clock;
 
     public Payment() {
-        this.id = UUID.randomUUID().toString();
+        this(PaymentIdGenerator.getDefault());
+    }
+
+    /** A payment with the next id from {@code ids}, stamped by the generator's clock. */
+    public Payment(PaymentIdGenerator ids) {
+        this(ids.nextId(), ids.getClock());
+    }
+
+    /** A payment with an id that was issued before, e.g. one decoded from a record. */
+    public Payment(long id, PaymentClock clock) {
+        this.numericId = id;
+        this.id = PaymentIdGenerator.format(id);
+        this.clock = clock;
         this.status = PaymentStatus.PENDING;
-        this.createdAt = LocalDateTime.now();
-        this.updatedAt = LocalDateTime.now();
+        // Taken from the id, so creation order and id order always agree
+        this.createdAtMicros = PaymentIdGenerator.timestampMicrosOf(numericId);
+        this.updatedAtMicros = createdAtMicros;
         this.currency = Currency.GEL;
     }
 
     public Payment(PaymentRequest request) {
-        this();
+        this(request, PaymentIdGenerator.getDefault());
+    }
+
+    public Payment(PaymentRequest request, PaymentIdGenerator ids) {
+        this(ids);
         this.senderId = request.getSenderUserId();
         this.receiverId = request.getReceiverUserId();
-        this.amount = request.getAmount();
         this.currency = request.getCurrency();
+        this.amountMinor = request.getAmountMinor();
         this.paymentMethod = request.getPaymentMethod();
         this.description = request.getDescription();
         this.reference = request.getReferenceNumber();
@@ -44,58 +75,99 @@ public class Payment {
         this();
         this.senderId = senderId;
         this.receiverId = receiverId;
-        this.amount = amount;
+        this.amountMinor = Money.toMinor(amount, currency);
         this.description = description;
         this.paymentMethod = PaymentMethod.BANK_TRANSFER;
     }
 
     public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    public void setId(String id) {
+        this.id = id;
+        this.numericId = PaymentIdGenerator.parse(id);
+    }
+
+    /**
+     * The id as a number that orders payments by creation. Payments with older random ids get
+     * their createdAt's lowest id, so they still sort by time and tie on the string id.
+     */
+    public long getNumericId() {
+        return numericId >= 0 ? numericId : PaymentIdGenerator.lowerBound(createdAtMicros);
+    }
+
     public String getSenderId() { return senderId; }
     public void setSenderId(String senderId) { this.senderId = senderId; }
     public String getReceiverId() { return receiverId; }
     public void setReceiverId(String receiverId) { this.receiverId = receiverId; }
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public double getAmount() { return Money.toMajor(amountMinor, currency); }
+    public void setAmount(double amount) { this.amountMinor = Money.toMinor(amount, currency); }
+    public long getAmountMinor() { return amountMinor; }
+    public void setAmountMinor(long amountMinor) { this.amountMinor = amountMinor; }
+    public Money getMoney() { return Money.ofMinor(amountMinor, currency); }
     public Currency getCurrency() { return currency; }
     public void setCurrency(Currency currency) { this.currency = currency; }
     public PaymentMethod getPaymentMethod() { return paymentMethod; }
     public void setPaymentMethod(PaymentMethod paymentMethod) { this.paymentMethod = paymentMethod; }
     public PaymentStatus getStatus() { return status; }
-    public void setStatus(PaymentStatus status) {
-        this.status = status;
-        this.updatedAt = LocalDateTime.now();
-    }
+    public void setStatus(PaymentStatus status) { transitionTo(status); }
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
     public String getReference() { return reference; }
     public void setReference(String reference) { this.reference = reference; }
-    public LocalDateTime getCreatedAt() { return createdAt; }
-    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-    public LocalDateTime getUpdatedAt() { return updatedAt; }
-    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    public LocalDateTime getCreatedAt() { return PaymentClock.toLocalDateTime(createdAtMicros); }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAtMicros = PaymentClock.toMicros(createdAt); }
+    public long getCreatedAtMicros() { return createdAtMicros; }
+    public void setCreatedAtMicros(long createdAtMicros) { this.createdAtMicros = createdAtMicros; }
+    public LocalDateTime getUpdatedAt() { return PaymentClock.toLocalDateTime(updatedAtMicros); }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAtMicros = PaymentClock.toMicros(updatedAt); }
+    public long getUpdatedAtMicros() { return updatedAtMicros; }
+    public void setUpdatedAtMicros(long updatedAtMicros) { this.updatedAtMicros = updatedAtMicros; }
     public String getErrorMessage() { return errorMessage; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public SettlementStep getSettlement() { return settlement; }
+    public Money getReservation() { return reservation; }
 
-    public void markAsFailed(String errorMessage) {
-        this.status = PaymentStatus.FAILED;
-        this.errorMessage = errorMessage;
-        this.updatedAt = LocalDateTime.now();
+    /**
+     * Records a settlement step; a step that is not after the current one is ignored.
+     * A payment's steps happen one after another, so this needs no lock.
+     */
+    public void setSettlement(SettlementStep step, Money reservation) {
+        if (step.isAfter(settlement)) {
+            if (reservation != null) {
+                this.reservation = reservation;
+            }
+            this.settlement = step;
+        }
     }
 
-    public void markAsCompleted() {
-        this.status = PaymentStatus.COMPLETED;
-        this.updatedAt = LocalDateTime.now();
+    public synchronized void markAsFailed(String errorMessage) {
+        this.errorMessage = errorMessage;
+        transitionTo(PaymentStatus.FAILED);
     }
 
-    public void markAsCancelled() {
-        this.status = PaymentStatus.CANCELLED;
-        this.updatedAt = LocalDateTime.now();
+    public void markAsCompleted() { transitionTo(PaymentStatus.COMPLETED); }
+
+    public void markAsCancelled() { transitionTo(PaymentStatus.CANCELLED); }
+
+    public void markAsFailed() { transitionTo(PaymentStatus.FAILED); }
+
+    /**
+     * Registers the listener and immediately reports the current status to it
+     * with a {@code null} previous status, so the listener never misses a transition.
+     */
+    public synchronized void attachStatusListener(StatusListener listener) {
+        this.statusListener = listener;
+        if (listener != null) {
+            listener.onStatusChanged(this, null, status);
+        }
     }
 
-    public void markAsFailed() {
-        this.status = PaymentStatus.FAILED;
-        this.updatedAt = LocalDateTime.now();
+    private synchronized void transitionTo(PaymentStatus newStatus) {
+        PaymentStatus previous = this.status;
+        this.status = newStatus;
+        this.updatedAtMicros = clock.currentTimeMicros();
+        if (statusListener != null && previous != newStatus) {
+            statusListener.onStatusChanged(this, previous, newStatus);
+        }
     }
 
     public boolean isSuccessful() { return status == PaymentStatus.COMPLETED; }
@@ -120,14 +192,14 @@ public class Payment {
                 "id='" + id + '\'' +
                 ", senderId='" + senderId + '\'' +
                 ", receiverId='" + receiverId + '\'' +
-                ", amount=" + amount +
+                ", amount=" + getAmount() +
                 ", currency=" + currency +
                 ", paymentMethod=" + paymentMethod +
                 ", status=" + status +
                 ", description='" + description + '\'' +
                 ", reference='" + reference + '\'' +
-                ", createdAt=" + createdAt +
-                ", updatedAt=" + updatedAt +
+                ", createdAt=" + getCreatedAt() +
+                ", updatedAt=" + getUpdatedAt() +
                 '}';
     }
 }
\ No newline at end of file
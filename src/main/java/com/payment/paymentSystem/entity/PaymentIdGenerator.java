@@ -0,0 +1,129 @@
+package com.payment.paymentSystem.entity;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style payment ids: 51 bits of microseconds since 2024-01-01T00:00Z, a 6-bit node and a
+ * 6-bit sequence. Ids from one generator strictly increase, even when the clock steps back or
+ * more than 64 ids are requested within a microsecond (the timestamp then runs slightly ahead).
+ * A payment's createdAt is its id's timestamp, so id order is creation order.
+ *
+ * <p>The string form is 13 Crockford base32 characters, fixed width, so ids also sort
+ * correctly as strings.
+ */
+public final class PaymentIdGenerator {
+    public static final int MAX_NODE = (1 << 6) - 1;
+    /** Node of generators that are not given one, from the {@code payment.node.id} system property. */
+    public static final int DEFAULT_NODE = Integer.getInteger("payment.node.id", 0);
+
+    private static final int NODE_BITS = 6;
+    private static final int SEQUENCE_BITS = 6;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long EPOCH_MICROS = LocalDateTime.of(2024, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1_000_000L;
+    private static final int ID_LENGTH = 13;
+    private static final char[] DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i++) {
+            VALUES[DIGITS[i]] = (byte) i;
+        }
+    }
+
+    private static final PaymentIdGenerator DEFAULT = new PaymentIdGenerator(DEFAULT_NODE, PaymentClock.system());
+
+    private final long node;
+    private final PaymentClock clock;
+    /** Last issued {@code timestamp << SEQUENCE_BITS | sequence}; incrementing it carries into the timestamp. */
+    private final AtomicLong lastTick = new AtomicLong();
+
+    public PaymentIdGenerator(int node, PaymentClock clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node must be between 0 and " + MAX_NODE);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    public static PaymentIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    /** The clock ids are taken from; payments also use it to stamp status changes. */
+    public PaymentClock getClock() {
+        return clock;
+    }
+
+    public long nextId() {
+        long tick;
+        long previous;
+        do {
+            previous = lastTick.get();
+            tick = Math.max((clock.currentTimeMicros() - EPOCH_MICROS) << SEQUENCE_BITS, previous + 1);
+        } while (!lastTick.compareAndSet(previous, tick));
+        long timestamp = tick >>> SEQUENCE_BITS;
+        return timestamp << (NODE_BITS + SEQUENCE_BITS) | node << SEQUENCE_BITS | (tick & SEQUENCE_MASK);
+    }
+
+    /**
+     * Makes every later id greater than {@code id}, e.g. one recovered from a journal
+     * written before the clock stepped back.
+     */
+    public void advancePast(long id) {
+        long tick = (id >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS | (id & SEQUENCE_MASK);
+        lastTick.accumulateAndGet(tick, Math::max);
+    }
+
+    public static LocalDateTime timestampOf(long id) {
+        return PaymentClock.toLocalDateTime(timestampMicrosOf(id));
+    }
+
+    public static long timestampMicrosOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MICROS;
+    }
+
+    /** The smallest id whose timestamp is at or after {@code time}. */
+    public static long lowerBound(LocalDateTime time) {
+        return lowerBound(PaymentClock.toMicros(time) + (time.getNano() % 1_000 == 0 ? 0 : 1));
+    }
+
+    /** The smallest id whose timestamp is at or after {@code micros}. */
+    public static long lowerBound(long micros) {
+        if (micros <= EPOCH_MICROS) {
+            return 0;
+        }
+        long timestamp = micros - EPOCH_MICROS;
+        return timestamp >= 1L << 51 ? Long.MAX_VALUE : timestamp << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    public static String format(long id) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = DIGITS[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /** @return the id, or {@code -1} if {@code value} is not a formatted payment id */
+    public static long parse(String value) {
+        if (value == null || value.length() != ID_LENGTH || value.charAt(0) > '7') {
+            return -1;
+        }
+        long id = 0;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            char c = value.charAt(i);
+            int digit = c < VALUES.length ? VALUES[c] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            id = id << 5 | digit;
+        }
+        return id;
+    }
+}
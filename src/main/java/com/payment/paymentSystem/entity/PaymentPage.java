@@ -0,0 +1,23 @@
+package com.payment.paymentSystem.entity;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a newest-first payment listing. {@link #getNextCursor()} is an opaque token
+ * that continues the listing after the last payment of this page, or {@code null} at the end.
+ */
+public class PaymentPage {
+    private final List<Payment> payments;
+    private final String nextCursor;
+
+    public PaymentPage(List<Payment> payments, String nextCursor) {
+        this.payments = Collections.unmodifiableList(payments);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Payment> getPayments() { return payments; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean hasMore() { return nextCursor != null; }
+    public boolean isEmpty() { return payments.isEmpty(); }
+}
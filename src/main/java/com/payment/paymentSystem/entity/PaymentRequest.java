@@ -7,24 +7,26 @@ import java.util.Objects;
 public class PaymentRequest {
     private String senderUserId;
     private String receiverUserId;
-    private double amount;
+    private long amountMinor;
     private Currency currency;
     private PaymentMethod paymentMethod;
     private String description;
     private String referenceNumber;
+    private String idempotencyKey;
 
     private PaymentRequest() {
         this.currency = Currency.GEL;
         this.paymentMethod = PaymentMethod.BANK_TRANSFER;
         this.description = "";
         this.referenceNumber = "";
+        this.idempotencyKey = "";
     }
 
     public PaymentRequest(String senderUserId, String receiverUserId, double amount, String description) {
         this();
         this.senderUserId = senderUserId;
         this.receiverUserId = receiverUserId;
-        this.amount = amount;
+        this.amountMinor = Money.toMinor(amount, currency);
         this.description = description;
     }
 
@@ -32,21 +34,27 @@ public class PaymentRequest {
                           Currency currency, PaymentMethod paymentMethod, String description, String referenceNumber) {
         this.senderUserId = senderUserId;
         this.receiverUserId = receiverUserId;
-        this.amount = amount;
         this.currency = currency != null ? currency : Currency.GEL;
+        this.amountMinor = Money.toMinor(amount, this.currency);
         this.paymentMethod = paymentMethod != null ? paymentMethod : PaymentMethod.BANK_TRANSFER;
         this.description = description != null ? description : "";
         this.referenceNumber = referenceNumber != null ? referenceNumber : "";
+        this.idempotencyKey = "";
     }
 
     public String getSenderUserId() { return senderUserId; }
     public void setSenderUserId(String senderUserId) { this.senderUserId = senderUserId; }
     public String getReceiverUserId() { return receiverUserId; }
     public void setReceiverUserId(String receiverUserId) { this.receiverUserId = receiverUserId; }
-    public double getAmount() { return amount; }
+    public double getAmount() { return Money.toMajor(amountMinor, currency); }
     public void setAmount(double amount) {
         if (amount < 0) throw new IllegalArgumentException("Amount must be non-negative");
-        this.amount = amount;
+        this.amountMinor = Money.toMinor(amount, currency);
+    }
+    public long getAmountMinor() { return amountMinor; }
+    public void setAmountMinor(long amountMinor) {
+        if (amountMinor < 0) throw new IllegalArgumentException("Amount must be non-negative");
+        this.amountMinor = amountMinor;
     }
     public Currency getCurrency() { return currency; }
     public void setCurrency(Currency currency) { this.currency = currency != null ? currency : Currency.GEL; }
@@ -56,11 +64,14 @@ public class PaymentRequest {
     public void setDescription(String description) { this.description = description != null ? description : ""; }
     public String getReferenceNumber() { return referenceNumber; }
     public void setReferenceNumber(String referenceNumber) { this.referenceNumber = referenceNumber != null ? referenceNumber : ""; }
+    /** Key under which retries of this request are deduplicated; defaults to the reference number. */
+    public String getIdempotencyKey() { return idempotencyKey.isEmpty() ? referenceNumber : idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey != null ? idempotencyKey : ""; }
 
     public boolean isValid() {
         return senderUserId != null && !senderUserId.trim().isEmpty()
                 && receiverUserId != null && !receiverUserId.trim().isEmpty()
-                && amount > 0
+                && amountMinor > 0
                 && currency != null
                 && paymentMethod != null;
     }
@@ -70,46 +81,57 @@ public class PaymentRequest {
         if (this == o) return true;
         if (!(o instanceof PaymentRequest)) return false;
         PaymentRequest that = (PaymentRequest) o;
-        return Double.compare(that.amount, amount) == 0 &&
+        return amountMinor == that.amountMinor &&
                 Objects.equals(senderUserId, that.senderUserId) &&
                 Objects.equals(receiverUserId, that.receiverUserId) &&
                 currency == that.currency &&
                 paymentMethod == that.paymentMethod &&
                 Objects.equals(description, that.description) &&
-                Objects.equals(referenceNumber, that.referenceNumber);
+                Objects.equals(referenceNumber, that.referenceNumber) &&
+                Objects.equals(getIdempotencyKey(), that.getIdempotencyKey());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(senderUserId, receiverUserId, amount, currency, paymentMethod, description, referenceNumber);
+        return Objects.hash(senderUserId, receiverUserId, amountMinor, currency, paymentMethod, description,
+                referenceNumber, getIdempotencyKey());
     }
 
     public static class Builder {
         private String senderUserId;
         private String receiverUserId;
         private double amount;
+        private long amountMinor = -1;
         private Currency currency = Currency.GEL;
         private PaymentMethod paymentMethod = PaymentMethod.BANK_TRANSFER;
         private String description = "";
         private String referenceNumber = "";
+        private String idempotencyKey = "";
 
         public Builder setSenderUserId(String senderUserId) { this.senderUserId = senderUserId; return this; }
         public Builder setReceiverUserId(String receiverUserId) { this.receiverUserId = receiverUserId; return this; }
-        public Builder setAmount(double amount) { this.amount = amount; return this; }
+        public Builder setAmount(double amount) { this.amount = amount; this.amountMinor = -1; return this; }
+        public Builder setAmountMinor(long amountMinor) {
+            if (amountMinor < 0) throw new IllegalArgumentException("Amount must be non-negative");
+            this.amountMinor = amountMinor;
+            return this;
+        }
         public Builder setCurrency(Currency currency) { this.currency = currency != null ? currency : Currency.GEL; return this; }
         public Builder setPaymentMethod(PaymentMethod paymentMethod) { this.paymentMethod = paymentMethod != null ? paymentMethod : PaymentMethod.BANK_TRANSFER; return this; }
         public Builder setDescription(String description) { this.description = description != null ? description : ""; return this; }
         public Builder setReferenceNumber(String referenceNumber) { this.referenceNumber = referenceNumber != null ? referenceNumber : ""; return this; }
+        public Builder setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey != null ? idempotencyKey : ""; return this; }
 
         public PaymentRequest build() {
             PaymentRequest request = new PaymentRequest();
             request.senderUserId = this.senderUserId;
             request.receiverUserId = this.receiverUserId;
-            request.amount = this.amount;
             request.currency = this.currency;
+            request.amountMinor = this.amountMinor >= 0 ? this.amountMinor : Money.toMinor(this.amount, this.currency);
             request.paymentMethod = this.paymentMethod;
             request.description = this.description;
             request.referenceNumber = this.referenceNumber;
+            request.idempotencyKey = this.idempotencyKey;
             return request;
         }
     }
@@ -121,11 +143,12 @@ public class PaymentRequest {
         return "PaymentRequest{" +
                 "senderUserId='" + senderUserId + '\'' +
                 ", receiverUserId='" + receiverUserId + '\'' +
-                ", amount=" + amount +
+                ", amount=" + getAmount() +
                 ", currency=" + currency +
                 ", paymentMethod=" + paymentMethod +
                 ", description='" + description + '\'' +
                 ", referenceNumber='" + referenceNumber + '\'' +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,22 +1,38 @@
 package com.payment.paymentSystem.entity;
 
+import com.payment.paymentSystem.enums.Currency;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Objects;
 
+/**
+ * A user with one wallet per {@link Currency}. The plain balance methods work on the
+ * {@link #BALANCE_CURRENCY} wallet. Wallet updates are not atomic on their own; callers
+ * serialize them per user, while reads are always safe.
+ *
+ * <p>Once registered in an {@link AccountTable}, the wallets and active flag live in the
+ * user's row of that table; until then they are kept on the object itself.
+ */
 public class User {
+    public static final Currency BALANCE_CURRENCY = Currency.GEL;
+    private static final Currency[] CURRENCIES = Currency.values();
+
     private String id;
     private String firstName;
     private String lastName;
     private String email;
     private String phoneNumber;
-    private double balance;
     private LocalDateTime createdAt;
-    private boolean isActive;
+    private AccountTable accounts;
+    private int slot;
+    /** Wallets, then the active flag, while the user is in no table. */
+    private long[] detached = new long[CURRENCIES.length + 1];
 
     public User() {
-        this.createdAt = LocalDateTime.now();
-        this.isActive = true;
-        this.balance = 0.0;
+        this.createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        this.detached[CURRENCIES.length] = 1;
     }
 
     public User(String id, String firstName, String lastName, String email, String phoneNumber) {
@@ -30,7 +46,7 @@ public class User {
 
     public User(String id, String firstName, String lastName, String email, String phoneNumber, double balance) {
         this(id, firstName, lastName, email, phoneNumber);
-        this.balance = balance;
+        setBalance(balance);
     }
 
     public String getId() { return id; }
@@ -43,28 +59,98 @@ public class User {
     public void setEmail(String email) { this.email = email; }
     public String getPhoneNumber() { return phoneNumber; }
     public void setPhoneNumber(String phoneNumber) { this.phoneNumber = phoneNumber; }
-    public double getBalance() { return balance; }
-    public void setBalance(double balance) { this.balance = Math.max(0, balance); }
+    public double getBalance() { return getBalance(BALANCE_CURRENCY); }
+    public void setBalance(double balance) { setBalanceMinor(Money.toMinor(balance, BALANCE_CURRENCY)); }
+    public long getBalanceMinor() { return getBalanceMinor(BALANCE_CURRENCY); }
+    public void setBalanceMinor(long balanceMinor) { setBalanceMinor(BALANCE_CURRENCY, balanceMinor); }
+    public double getBalance(Currency currency) { return Money.toMajor(getBalanceMinor(currency), currency); }
+    public long getBalanceMinor(Currency currency) {
+        return accounts != null ? accounts.getBalanceMinor(slot, currency) : detached[currency.ordinal()];
+    }
+
+    public void setBalanceMinor(Currency currency, long balanceMinor) {
+        if (accounts != null) {
+            accounts.setBalanceMinor(slot, currency, balanceMinor);
+        } else {
+            detached[currency.ordinal()] = Math.max(0, balanceMinor);
+        }
+    }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-    public boolean isActive() { return isActive; }
-    public void setActive(boolean active) { isActive = active; }
+    public boolean isActive() { return accounts != null ? accounts.isActive(slot) : detached[CURRENCIES.length] != 0; }
+
+    public void setActive(boolean active) {
+        if (accounts != null) {
+            accounts.setActive(slot, active);
+        } else {
+            detached[CURRENCIES.length] = active ? 1 : 0;
+        }
+    }
+
+    /** The user's slot in its {@link AccountTable}, or {@code -1} before registration. */
+    public int getAccountSlot() { return accounts != null ? slot : -1; }
 
     public String getFullName() { return firstName + " " + lastName; }
 
     public void addToBalance(double amount) {
-        if (amount > 0) this.balance += amount;
+        addToBalanceMinor(Money.toMinor(amount, BALANCE_CURRENCY));
     }
 
     public boolean deductFromBalance(double amount) {
-        if (amount > 0 && this.balance >= amount) {
-            this.balance -= amount;
+        return deductFromBalanceMinor(Money.toMinor(amount, BALANCE_CURRENCY));
+    }
+
+    public boolean hasSufficientBalance(double amount) {
+        return hasSufficientBalanceMinor(Money.toMinor(amount, BALANCE_CURRENCY));
+    }
+
+    public void addToBalanceMinor(long amountMinor) {
+        addToBalanceMinor(BALANCE_CURRENCY, amountMinor);
+    }
+
+    public boolean deductFromBalanceMinor(long amountMinor) {
+        return deductFromBalanceMinor(BALANCE_CURRENCY, amountMinor);
+    }
+
+    public boolean hasSufficientBalanceMinor(long amountMinor) {
+        return hasSufficientBalanceMinor(BALANCE_CURRENCY, amountMinor);
+    }
+
+    public void addToBalanceMinor(Currency currency, long amountMinor) {
+        if (amountMinor > 0) setBalanceMinor(currency, Money.add(getBalanceMinor(currency), amountMinor));
+    }
+
+    public boolean deductFromBalanceMinor(Currency currency, long amountMinor) {
+        long balance = getBalanceMinor(currency);
+        if (amountMinor > 0 && balance >= amountMinor) {
+            setBalanceMinor(currency, balance - amountMinor);
             return true;
         }
         return false;
     }
 
-    public boolean hasSufficientBalance(double amount) { return this.balance >= amount; }
+    public boolean hasSufficientBalanceMinor(Currency currency, long amountMinor) {
+        return getBalanceMinor(currency) >= amountMinor;
+    }
+
+    /** Non-empty wallets, in currency order. */
+    public Map<Currency, Money> getWallets() {
+        Map<Currency, Money> wallets = new EnumMap<>(Currency.class);
+        for (Currency currency : CURRENCIES) {
+            long balance = getBalanceMinor(currency);
+            if (balance != 0) {
+                wallets.put(currency, Money.ofMinor(balance, currency));
+            }
+        }
+        return wallets;
+    }
+
+    void bind(AccountTable accounts, int slot) {
+        this.accounts = accounts;
+        this.slot = slot;
+        this.detached = null;
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -85,8 +171,8 @@ public class User {
                 ", lastName='" + lastName + '\'' +
                 ", email='" + email + '\'' +
                 ", phoneNumber='" + phoneNumber + '\'' +
-                ", balance=" + balance +
-                ", isActive=" + isActive +
+                ", balance=" + getBalance() +
+                ", isActive=" + isActive() +
                 ", createdAt=" + createdAt +
                 '}';
     }
@@ -1,18 +1,26 @@
 package com.payment.paymentSystem.enums;
 
 public enum Currency {
-    GEL("Georgian Lari", "₾"),
-    USD("US Dollar", "$"),
-    EUR("Euro", "€"),
-    RUB("Russian Ruble", "₽"),
-    TRY("Turkish Lira", "₺");
+    GEL("Georgian Lari", "₾", 2),
+    USD("US Dollar", "$", 2),
+    EUR("Euro", "€", 2),
+    RUB("Russian Ruble", "₽", 2),
+    TRY("Turkish Lira", "₺", 2);
 
     private final String name;
     private final String symbol;
+    private final int fractionDigits;
+    private final long minorUnitsPerMajor;
 
-    Currency(String name, String symbol) {
+    Currency(String name, String symbol, int fractionDigits) {
         this.name = name;
         this.symbol = symbol;
+        this.fractionDigits = fractionDigits;
+        long scale = 1;
+        for (int i = 0; i < fractionDigits; i++) {
+            scale *= 10;
+        }
+        this.minorUnitsPerMajor = scale;
     }
 
     public String getName() {
@@ -23,6 +31,14 @@ public enum Currency {
         return symbol;
     }
 
+    public int getFractionDigits() {
+        return fractionDigits;
+    }
+
+    public long getMinorUnitsPerMajor() {
+        return minorUnitsPerMajor;
+    }
+
     @Override
     public String toString() {
         return name + " (" + symbol + ")";
@@ -0,0 +1,21 @@
+package com.payment.paymentSystem.enums;
+
+/**
+ * How far a payment's money has moved. Each step is journaled in the same record as the balance
+ * change it describes, so recovery can finish a payment that a restart left {@code PENDING}.
+ * Steps only move forward, in declaration order.
+ */
+public enum SettlementStep {
+    /** No balance has changed yet. */
+    NONE,
+    /** The sender was charged and the receiver not yet credited. */
+    RESERVED,
+    /** The sender's charge was credited back. */
+    RELEASED,
+    /** The receiver was credited; the payment only has to be marked completed. */
+    SETTLED;
+
+    public boolean isAfter(SettlementStep other) {
+        return ordinal() > other.ordinal();
+    }
+}
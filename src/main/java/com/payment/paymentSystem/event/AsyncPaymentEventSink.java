@@ -0,0 +1,101 @@
+package com.payment.paymentSystem.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event sink that hands events to a bounded {@link MpscRingBuffer} and delivers them to its
+ * subscribers on a single background thread. Publishing never blocks: when the ring is full
+ * the event is dropped and counted. With no subscribers the sink reports itself disabled.
+ */
+public final class AsyncPaymentEventSink implements PaymentEventSink, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final MpscRingBuffer<PaymentEvent> buffer;
+    private final List<PaymentEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean enabled;
+    private volatile boolean running = true;
+    private volatile long delivered;
+
+    public AsyncPaymentEventSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public AsyncPaymentEventSink(int capacity) {
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.consumer = new Thread(this::drainLoop, "payment-events");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    public void subscribe(PaymentEventListener listener) {
+        listeners.add(listener);
+        enabled = running;
+    }
+
+    public void unsubscribe(PaymentEventListener listener) {
+        listeners.remove(listener);
+        enabled = running && !listeners.isEmpty();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void publish(PaymentEvent event) {
+        if (!buffer.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /** Blocks until every event published before this call has been delivered. */
+    public void flush() {
+        long target = buffer.producedCount();
+        while (delivered < target && consumer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public void close() {
+        enabled = false;
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running || !buffer.isEmpty()) {
+            PaymentEvent event = buffer.poll();
+            if (event == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            for (PaymentEventListener listener : listeners) {
+                try {
+                    listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    // a failing subscriber must not stop delivery to the others
+                }
+            }
+            delivered++;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.payment.paymentSystem.event;
+
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.service.UserService;
+
+/**
+ * Prints payment events to the console in the format the services used to print inline.
+ */
+public class ConsolePaymentEventListener implements PaymentEventListener {
+    private final UserService userService;
+
+    public ConsolePaymentEventListener(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public void onEvent(PaymentEvent event) {
+        switch (event.getType()) {
+            case USER_REGISTERED -> System.out.println("User successfully registered: " + event.getUser().getFullName());
+            case USER_NOT_FOUND -> System.out.println("User not found with ID: " + event.getUserId());
+            case BALANCE_ADDED -> System.out.printf("Balance added: %s - %s (new balance: %s)%n",
+                    event.getUser().getFullName(), Money.ofMinor(event.getAmountMinor(), event.getCurrency()),
+                    Money.ofMinor(event.getBalanceMinor(), event.getCurrency()));
+            case BALANCE_DEDUCTED -> System.out.printf("Balance deducted: %s - %s (remaining: %s)%n",
+                    event.getUser().getFullName(), Money.ofMinor(event.getAmountMinor(), event.getCurrency()),
+                    Money.ofMinor(event.getBalanceMinor(), event.getCurrency()));
+            case INSUFFICIENT_BALANCE -> System.out.printf("Insufficient balance: %s (available: %s)%n",
+                    event.getUser().getFullName(), Money.ofMinor(event.getBalanceMinor(), event.getCurrency()));
+            case PAYMENT_COMPLETED -> {
+                Payment payment = event.getPayment();
+                System.out.printf("✅ Payment successful: %.2f %s from %s to %s%n",
+                        payment.getAmount(), payment.getCurrency().getSymbol(),
+                        fullName(payment.getSenderId()), fullName(payment.getReceiverId()));
+            }
+            case PAYMENT_FAILED -> System.out.println("❌ Payment failed: " + event.getPayment().getErrorMessage());
+            case PAYMENT_CANCELLED -> System.out.println("Payment cancelled: " + event.getPayment().getId());
+        }
+    }
+
+    private String fullName(String userId) {
+        return userService.findUserById(userId).map(User::getFullName).orElse(userId);
+    }
+}
@@ -0,0 +1,93 @@
+package com.payment.paymentSystem.event;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+
+/**
+ * Immutable record of something that happened on the payment path.
+ * Amounts and balances are captured when the event is created, since listeners run later.
+ */
+public final class PaymentEvent {
+    private final PaymentEventType type;
+    private final String userId;
+    private final User user;
+    private final Payment payment;
+    private final Currency currency;
+    private final long amountMinor;
+    private final long balanceMinor;
+
+    private PaymentEvent(PaymentEventType type, String userId, User user, Payment payment,
+                         Currency currency, long amountMinor, long balanceMinor) {
+        this.type = type;
+        this.userId = userId;
+        this.user = user;
+        this.payment = payment;
+        this.currency = currency;
+        this.amountMinor = amountMinor;
+        this.balanceMinor = balanceMinor;
+    }
+
+    public static PaymentEvent userRegistered(User user) {
+        return new PaymentEvent(PaymentEventType.USER_REGISTERED, user.getId(), user, null,
+                User.BALANCE_CURRENCY, 0, user.getBalanceMinor());
+    }
+
+    public static PaymentEvent userNotFound(String userId) {
+        return new PaymentEvent(PaymentEventType.USER_NOT_FOUND, userId, null, null, User.BALANCE_CURRENCY, 0, 0);
+    }
+
+    public static PaymentEvent balanceAdded(User user, long amountMinor, long balanceMinor) {
+        return balanceAdded(user, User.BALANCE_CURRENCY, amountMinor, balanceMinor);
+    }
+
+    public static PaymentEvent balanceAdded(User user, Currency currency, long amountMinor, long balanceMinor) {
+        return new PaymentEvent(PaymentEventType.BALANCE_ADDED, user.getId(), user, null, currency, amountMinor, balanceMinor);
+    }
+
+    public static PaymentEvent balanceDeducted(User user, long amountMinor, long balanceMinor) {
+        return new PaymentEvent(PaymentEventType.BALANCE_DEDUCTED, user.getId(), user, null,
+                User.BALANCE_CURRENCY, amountMinor, balanceMinor);
+    }
+
+    public static PaymentEvent insufficientBalance(User user, long amountMinor, long balanceMinor) {
+        return new PaymentEvent(PaymentEventType.INSUFFICIENT_BALANCE, user.getId(), user, null,
+                User.BALANCE_CURRENCY, amountMinor, balanceMinor);
+    }
+
+    public static PaymentEvent paymentCompleted(Payment payment) {
+        return forPayment(PaymentEventType.PAYMENT_COMPLETED, payment);
+    }
+
+    public static PaymentEvent paymentFailed(Payment payment) {
+        return forPayment(PaymentEventType.PAYMENT_FAILED, payment);
+    }
+
+    public static PaymentEvent paymentCancelled(Payment payment) {
+        return forPayment(PaymentEventType.PAYMENT_CANCELLED, payment);
+    }
+
+    private static PaymentEvent forPayment(PaymentEventType type, Payment payment) {
+        return new PaymentEvent(type, payment.getSenderId(), null, payment, payment.getCurrency(), payment.getAmountMinor(), 0);
+    }
+
+    public PaymentEventType getType() { return type; }
+    public String getUserId() { return userId; }
+    public User getUser() { return user; }
+    public Payment getPayment() { return payment; }
+    /** Currency of {@link #getAmountMinor()} and {@link #getBalanceMinor()}. */
+    public Currency getCurrency() { return currency; }
+    public long getAmountMinor() { return amountMinor; }
+    public long getBalanceMinor() { return balanceMinor; }
+
+    @Override
+    public String toString() {
+        return "PaymentEvent{" +
+                "type=" + type +
+                ", userId='" + userId + '\'' +
+                ", paymentId='" + (payment != null ? payment.getId() : null) + '\'' +
+                ", amountMinor=" + amountMinor +
+                ", balanceMinor=" + balanceMinor +
+                '}';
+    }
+}
@@ -0,0 +1,6 @@
+package com.payment.paymentSystem.event;
+
+@FunctionalInterface
+public interface PaymentEventListener {
+    void onEvent(PaymentEvent event);
+}
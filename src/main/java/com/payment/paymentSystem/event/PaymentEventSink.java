@@ -0,0 +1,26 @@
+package com.payment.paymentSystem.event;
+
+/**
+ * Destination for payment events. Callers check {@link #isEnabled()} before building an event,
+ * so a disabled sink costs the hot path no formatting and no allocation.
+ */
+public interface PaymentEventSink {
+
+    boolean isEnabled();
+
+    void publish(PaymentEvent event);
+
+    static PaymentEventSink disabled() {
+        return DisabledSink.INSTANCE;
+    }
+
+    enum DisabledSink implements PaymentEventSink {
+        INSTANCE;
+
+        @Override
+        public boolean isEnabled() { return false; }
+
+        @Override
+        public void publish(PaymentEvent event) { }
+    }
+}
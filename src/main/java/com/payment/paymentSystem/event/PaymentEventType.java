@@ -0,0 +1,12 @@
+package com.payment.paymentSystem.event;
+
+public enum PaymentEventType {
+    USER_REGISTERED,
+    USER_NOT_FOUND,
+    BALANCE_ADDED,
+    BALANCE_DEDUCTED,
+    INSUFFICIENT_BALANCE,
+    PAYMENT_COMPLETED,
+    PAYMENT_FAILED,
+    PAYMENT_CANCELLED
+}
@@ -0,0 +1,98 @@
+package com.payment.paymentSystem.fx;
+
+import com.payment.paymentSystem.enums.Currency;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/**
+ * Immutable set of exchange rates. Each rate is precomputed into a fixed-point factor that
+ * converts minor units of one currency straight into minor units of another, so a
+ * conversion is one multiplication and a rounding division. Updates return a new table.
+ */
+public final class FxRateTable {
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final long SCALE = 1_000_000_000L;
+    private static final BigDecimal SCALE_DECIMAL = BigDecimal.valueOf(SCALE);
+    private static final FxRateTable IDENTITY = new FxRateTable(new long[CURRENCIES.length * CURRENCIES.length]);
+
+    /** Minor-to-minor factors scaled by {@link #SCALE}, indexed {@code from * n + to}; 0 means no rate. */
+    private final long[] factors;
+
+    private FxRateTable(long[] factors) {
+        this.factors = factors;
+    }
+
+    /** A table that only converts a currency to itself. */
+    public static FxRateTable identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Returns a copy of this table with {@code rate} units of {@code to} per unit of
+     * {@code from}, and the inverse rate for the opposite direction.
+     */
+    public FxRateTable withRate(Currency from, Currency to, BigDecimal rate) {
+        if (rate == null || rate.signum() <= 0) {
+            throw new IllegalArgumentException("Exchange rate must be positive");
+        }
+        if (from == to) {
+            throw new IllegalArgumentException("Cannot set a rate between the same currency");
+        }
+        long[] updated = Arrays.copyOf(factors, factors.length);
+        updated[index(from, to)] = toFactor(rate, from, to);
+        updated[index(to, from)] = toFactor(BigDecimal.ONE.divide(rate, MathContext.DECIMAL64), to, from);
+        return new FxRateTable(updated);
+    }
+
+    public boolean hasRate(Currency from, Currency to) {
+        return from == to || factors[index(from, to)] != 0;
+    }
+
+    /**
+     * Converts a non-negative {@code amountMinor} of {@code from} into minor units of
+     * {@code to}, rounding half up.
+     *
+     * @throws IllegalStateException if there is no rate between the currencies
+     * @throws ArithmeticException if the result does not fit in a {@code long}
+     */
+    public long convert(long amountMinor, Currency from, Currency to) {
+        if (amountMinor < 0) {
+            throw new IllegalArgumentException("Amount must not be negative");
+        }
+        if (from == to) {
+            return amountMinor;
+        }
+        long factor = factors[index(from, to)];
+        if (factor == 0) {
+            throw new IllegalStateException("No exchange rate for " + from.name() + " to " + to.name());
+        }
+        long high = Math.multiplyHigh(amountMinor, factor);
+        long low = amountMinor * factor;
+        if (high != 0 || low < 0) {
+            return BigInteger.valueOf(amountMinor).multiply(BigInteger.valueOf(factor))
+                    .add(BigInteger.valueOf(SCALE / 2))
+                    .divide(BigInteger.valueOf(SCALE))
+                    .longValueExact();
+        }
+        long quotient = low / SCALE;
+        return (low % SCALE) * 2 >= SCALE ? quotient + 1 : quotient;
+    }
+
+    private static long toFactor(BigDecimal rate, Currency from, Currency to) {
+        long factor = rate.multiply(BigDecimal.valueOf(to.getMinorUnitsPerMajor()))
+                .multiply(SCALE_DECIMAL)
+                .divide(BigDecimal.valueOf(from.getMinorUnitsPerMajor()), 0, RoundingMode.HALF_EVEN)
+                .longValueExact();
+        if (factor == 0) {
+            throw new IllegalArgumentException("Exchange rate too small: " + rate);
+        }
+        return factor;
+    }
+
+    private static int index(Currency from, Currency to) {
+        return from.ordinal() * CURRENCIES.length + to.ordinal();
+    }
+}
@@ -0,0 +1,38 @@
+package com.payment.paymentSystem.fx;
+
+import com.payment.paymentSystem.enums.Currency;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current exchange rates. Readers convert against whichever immutable {@link FxRateTable}
+ * is published at the time, without locking; rate updates swap in a new table atomically.
+ */
+public final class FxRates {
+    private final AtomicReference<FxRateTable> table;
+
+    public FxRates() {
+        this(FxRateTable.identity());
+    }
+
+    public FxRates(FxRateTable initial) {
+        this.table = new AtomicReference<>(initial);
+    }
+
+    public FxRateTable current() {
+        return table.get();
+    }
+
+    public void setRate(Currency from, Currency to, BigDecimal rate) {
+        table.updateAndGet(current -> current.withRate(from, to, rate));
+    }
+
+    /** Replaces every rate at once, e.g. with a table built from a rate feed. */
+    public void publish(FxRateTable next) {
+        table.set(next);
+    }
+
+    public long convert(long amountMinor, Currency from, Currency to) {
+        return table.get().convert(amountMinor, from, to);
+    }
+}
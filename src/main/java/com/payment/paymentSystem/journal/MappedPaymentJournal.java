@@ -0,0 +1,539 @@
+package com.payment.paymentSystem.journal;
+
+import com.payment.paymentSystem.codec.BinaryFormat;
+import com.payment.paymentSystem.codec.PaymentCodec;
+import com.payment.paymentSystem.codec.UserCodec;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * {@link PaymentJournal} written through memory-mapped segment files.
+ *
+ * <p>Records are {@code [int length][int crc32][payload]} and are appended under a single lock
+ * straight into the mapped segment. A background flusher forces newly written ranges to disk;
+ * {@link #awaitDurable()} wakes it and waits, so every caller that arrives during one flush
+ * is made durable by the next (group commit). On open, the journal scans to the first record
+ * with a bad checksum and discards it and everything after it, so a torn write at the tail is
+ * ignored and overwritten.
+ */
+public final class MappedPaymentJournal implements PaymentJournal, AutoCloseable {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int HEADER_SIZE = 8;
+
+    private static final Currency[] CURRENCIES = Currency.values();
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    private static final SettlementStep[] SETTLEMENT_STEPS = SettlementStep.values();
+
+    private static final byte USER = 1;
+    private static final byte PAYMENT_CREATED = 3;
+    private static final byte PAYMENT_STATUS = 4;
+    private static final byte PAYMENTS_DROPPED = 5;
+    private static final byte WALLETS = 6;
+    private static final byte SETTLEMENT = 7;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private final Map<Long, MappedByteBuffer> liveSegments = new ConcurrentHashMap<>();
+    private final Object durableMonitor = new Object();
+    private final Thread flusher;
+
+    private final RecordBuffer scratch = new RecordBuffer();
+    private MappedByteBuffer segment;
+    private long segmentIndex;
+    private volatile long writePosition;
+    private volatile long durablePosition;
+    private volatile boolean replaying;
+    private volatile boolean running = true;
+
+    private MappedPaymentJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        long end = read(firstSegmentIndex() * segmentSize, null);
+        this.segmentIndex = end / segmentSize;
+        this.segment = map(segmentIndex);
+        discardFrom(end);
+        this.writePosition = end;
+        this.durablePosition = end;
+
+        this.flusher = new Thread(this::flushLoop, "payment-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static MappedPaymentJournal open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public static MappedPaymentJournal open(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 1024) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+        }
+        return new MappedPaymentJournal(directory, segmentSize);
+    }
+
+    /** Position just past the last appended record. */
+    public long position() {
+        return writePosition;
+    }
+
+    public long durablePosition() {
+        return durablePosition;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return running && !replaying;
+    }
+
+    @Override
+    public boolean hasRecords() {
+        return writePosition > 0;
+    }
+
+    @Override
+    public void userSaved(User user) {
+        appendLock.lock();
+        try {
+            begin(USER);
+            scratch.putUser(user);
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void balanceChanged(User user) {
+        appendLock.lock();
+        try {
+            begin(WALLETS);
+            scratch.putInt(1);
+            putBalance(user);
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void balancesChanged(User first, User second) {
+        appendLock.lock();
+        try {
+            begin(WALLETS);
+            scratch.putInt(2);
+            putBalance(first);
+            putBalance(second);
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void balancesChanged(Collection<User> users) {
+        if (users.isEmpty()) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            begin(WALLETS);
+            scratch.putInt(users.size());
+            for (User user : users) {
+                putBalance(user);
+            }
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void paymentCreated(Payment payment) {
+        appendLock.lock();
+        try {
+            begin(PAYMENT_CREATED);
+            scratch.putPayment(payment);
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void paymentStatusChanged(Payment payment) {
+        appendLock.lock();
+        try {
+            begin(PAYMENT_STATUS);
+            scratch.putString(payment.getId());
+            scratch.putEnum(payment.getStatus());
+            scratch.putTimeMicros(payment.getUpdatedAtMicros());
+            scratch.putString(payment.getErrorMessage());
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void settlementChanged(Collection<Payment> payments, Collection<User> users) {
+        if (payments.isEmpty() && users.isEmpty()) {
+            return;
+        }
+        appendLock.lock();
+        try {
+            begin(SETTLEMENT);
+            scratch.putInt(payments.size());
+            for (Payment payment : payments) {
+                Money reservation = payment.getReservation();
+                scratch.putString(payment.getId());
+                scratch.putEnum(payment.getSettlement());
+                scratch.putEnum(reservation != null ? reservation.getCurrency() : payment.getCurrency());
+                scratch.putLong(reservation != null ? reservation.getMinorUnits() : 0);
+            }
+            scratch.putInt(users.size());
+            for (User user : users) {
+                putBalance(user);
+            }
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void paymentsDropped(LocalDate cutoff) {
+        appendLock.lock();
+        try {
+            begin(PAYMENTS_DROPPED);
+            scratch.putLong(cutoff.toEpochDay());
+            append();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable() {
+        long target = writePosition;
+        if (durablePosition >= target) {
+            return;
+        }
+        LockSupport.unpark(flusher);
+        synchronized (durableMonitor) {
+            while (durablePosition < target) {
+                if (!running) {
+                    throw new IllegalStateException("Journal is closed");
+                }
+                try {
+                    durableMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Feeds every record from {@code fromPosition} to the handler. Appends are disabled
+     * ({@link #isEnabled()} is false) while replaying, so restoring state is not re-journaled.
+     *
+     * @return the position just past the last replayed record
+     */
+    public long replay(long fromPosition, ReplayHandler handler) throws IOException {
+        replaying = true;
+        try {
+            return read(Math.max(fromPosition, firstSegmentIndex() * segmentSize), handler);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    /**
+     * Deletes segment files that lie entirely before {@code position}, typically the
+     * position of the latest snapshot. The segment containing {@code position} is kept.
+     */
+    public void deleteSegmentsBefore(long position) throws IOException {
+        long keepFrom = Math.min(position, durablePosition) / segmentSize;
+        for (long index = firstSegmentIndex(); index < keepFrom; index++) {
+            liveSegments.remove(index);
+            Files.deleteIfExists(segmentPath(index));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long target = writePosition;
+        forceUpTo(target);
+        synchronized (durableMonitor) {
+            durablePosition = target;
+            durableMonitor.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            long target = writePosition;
+            if (target > durablePosition) {
+                forceUpTo(target);
+                synchronized (durableMonitor) {
+                    durablePosition = target;
+                    durableMonitor.notifyAll();
+                }
+            } else {
+                LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            }
+        }
+    }
+
+    private void forceUpTo(long target) {
+        long from = durablePosition;
+        if (target <= from) {
+            return;
+        }
+        long firstIndex = from / segmentSize;
+        long lastIndex = (target - 1) / segmentSize;
+        for (long index = firstIndex; index <= lastIndex; index++) {
+            MappedByteBuffer buffer = liveSegments.get(index);
+            if (buffer != null) {
+                long segmentStart = index * segmentSize;
+                int start = (int) (Math.max(from, segmentStart) - segmentStart);
+                int end = (int) (Math.min(target, segmentStart + segmentSize) - segmentStart);
+                buffer.force(start, end - start);
+            }
+            if (index < lastIndex) {
+                liveSegments.remove(index);
+            }
+        }
+    }
+
+    private void begin(byte type) {
+        scratch.clear();
+        scratch.putByte(type);
+    }
+
+    private void append() {
+        int length = scratch.length();
+        if (HEADER_SIZE + length > segmentSize) {
+            throw new IllegalStateException("Journal record too large: " + length + " bytes");
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+
+        long segmentStart = segmentIndex * segmentSize;
+        int offset = (int) (writePosition - segmentStart);
+        if (offset + HEADER_SIZE + length > segmentSize) {
+            if (offset + 4 <= segmentSize) {
+                segment.putInt(offset, 0);
+            }
+            try {
+                segment = map(segmentIndex + 1);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open next journal segment", e);
+            }
+            segmentIndex++;
+            segmentStart = segmentIndex * segmentSize;
+            offset = 0;
+        }
+
+        segment.putInt(offset + 4, (int) crc.getValue());
+        segment.put(offset + HEADER_SIZE, scratch.array(), 0, length);
+        segment.putInt(offset, length);
+        writePosition = segmentStart + offset + HEADER_SIZE + length;
+    }
+
+    private void putBalance(User user) {
+        scratch.putString(user.getId());
+        scratch.putByte((byte) CURRENCIES.length);
+        for (Currency currency : CURRENCIES) {
+            scratch.putEnum(currency);
+            scratch.putLong(user.getBalanceMinor(currency));
+        }
+    }
+
+    private MappedByteBuffer map(long index) throws IOException {
+        MappedByteBuffer buffer = liveSegments.get(index);
+        if (buffer != null) {
+            return buffer;
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(index),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        liveSegments.put(index, buffer);
+        return buffer;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("journal-%08d.seg", index));
+    }
+
+    private long firstSegmentIndex() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(MappedPaymentJournal::segmentIndexOf)
+                    .filter(index -> index >= 0)
+                    .min()
+                    .orElse(0L);
+        }
+    }
+
+    /** @return the index of a segment file, or {@code -1} for any other file */
+    private static long segmentIndexOf(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith("journal-") || !name.endsWith(".seg")) {
+            return -1;
+        }
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".seg".length()));
+    }
+
+    /**
+     * Drops everything after the last valid record: the rest of its segment is zeroed and later
+     * segments are deleted. Otherwise records beyond a corrupt one could become readable again
+     * once new appends bridge the gap.
+     */
+    private void discardFrom(long end) throws IOException {
+        int offset = (int) (end - segmentIndex * segmentSize);
+        if (offset + 4 <= segmentSize && segment.getInt(offset) != 0) {
+            byte[] zeros = new byte[Math.min(64 * 1024, segmentSize - offset)];
+            for (int i = offset; i < segmentSize; i += zeros.length) {
+                segment.put(i, zeros, 0, Math.min(zeros.length, segmentSize - i));
+            }
+            segment.force();
+        }
+        List<Path> later;
+        try (Stream<Path> files = Files.list(directory)) {
+            later = files.filter(path -> segmentIndexOf(path) > segmentIndex).collect(Collectors.toList());
+        }
+        for (Path path : later) {
+            Files.delete(path);
+        }
+    }
+
+    private long read(long fromPosition, ReplayHandler handler) throws IOException {
+        long position = fromPosition;
+        CRC32 checksum = new CRC32();
+        while (true) {
+            long index = position / segmentSize;
+            Path path = segmentPath(index);
+            if (!Files.exists(path)) {
+                return position;
+            }
+
+            ByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentSize));
+            }
+
+            long segmentStart = index * segmentSize;
+            int offset = (int) (position - segmentStart);
+            while (true) {
+                if (buffer.limit() - offset < HEADER_SIZE) {
+                    break;
+                }
+                int length = buffer.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.limit() - offset - HEADER_SIZE) {
+                    return segmentStart + offset;
+                }
+                ByteBuffer payload = buffer.slice(offset + HEADER_SIZE, length);
+                checksum.reset();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != buffer.getInt(offset + 4)) {
+                    return segmentStart + offset;
+                }
+                if (handler != null) {
+                    dispatch(payload, handler);
+                }
+                offset += HEADER_SIZE + length;
+            }
+
+            position = segmentStart + offset;
+            if (!Files.exists(segmentPath(index + 1))) {
+                return position;
+            }
+            position = (index + 1) * segmentSize;
+        }
+    }
+
+    private static void dispatch(ByteBuffer payload, ReplayHandler handler) {
+        byte type = payload.get();
+        switch (type) {
+            case USER -> handler.onUser(UserCodec.decode(payload));
+            case WALLETS -> dispatchBalances(payload, handler);
+            case SETTLEMENT -> {
+                int count = payload.getInt();
+                for (int i = 0; i < count; i++) {
+                    String paymentId = BinaryFormat.getString(payload);
+                    SettlementStep step = BinaryFormat.getEnum(payload, SETTLEMENT_STEPS);
+                    Currency currency = BinaryFormat.getEnum(payload, CURRENCIES);
+                    long reservedMinor = payload.getLong();
+                    handler.onSettlement(paymentId, step, reservedMinor > 0 ? Money.ofMinor(reservedMinor, currency) : null);
+                }
+                dispatchBalances(payload, handler);
+            }
+            case PAYMENT_CREATED -> handler.onPaymentCreated(PaymentCodec.decode(payload, handler.clock()));
+            case PAYMENT_STATUS -> {
+                String paymentId = BinaryFormat.getString(payload);
+                PaymentStatus status = BinaryFormat.getEnum(payload, STATUSES);
+                LocalDateTime updatedAt = BinaryFormat.getTime(payload);
+                handler.onPaymentStatus(paymentId, status, BinaryFormat.getString(payload), updatedAt);
+            }
+            case PAYMENTS_DROPPED -> handler.onPaymentsDropped(LocalDate.ofEpochDay(payload.getLong()));
+            default -> throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    private static void dispatchBalances(ByteBuffer payload, ReplayHandler handler) {
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            String userId = BinaryFormat.getString(payload);
+            int wallets = payload.get();
+            for (int w = 0; w < wallets; w++) {
+                Currency currency = BinaryFormat.getEnum(payload, CURRENCIES);
+                handler.onBalance(userId, currency, payload.getLong());
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.payment.paymentSystem.journal;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Append-only record of user, balance and payment mutations. Every record carries absolute
+ * state rather than a delta, so replaying a record that is already reflected is harmless.
+ * Callers check {@link #isEnabled()} before journaling and call {@link #awaitDurable()}
+ * once per operation, which lets one flush cover many concurrent operations.
+ */
+public interface PaymentJournal {
+
+    boolean isEnabled();
+
+    boolean hasRecords();
+
+    void userSaved(User user);
+
+    void balanceChanged(User user);
+
+    void balancesChanged(User first, User second);
+
+    void balancesChanged(Collection<User> users);
+
+    void paymentCreated(Payment payment);
+
+    void paymentStatusChanged(Payment payment);
+
+    /**
+     * Records the current settlement step of each payment together with the balances the steps
+     * changed, in one record, so replay sees both or neither.
+     */
+    void settlementChanged(Collection<Payment> payments, Collection<User> users);
+
+    /** Records that payments created before {@code cutoff} were dropped by retention. */
+    void paymentsDropped(LocalDate cutoff);
+
+    void awaitDurable();
+
+    static PaymentJournal disabled() {
+        return DisabledJournal.INSTANCE;
+    }
+
+    interface ReplayHandler {
+        /** The clock that restored payments stamp their later transitions with. */
+        PaymentClock clock();
+
+        void onUser(User user);
+
+        void onBalance(String userId, Currency currency, long balanceMinor);
+
+        void onPaymentCreated(Payment payment);
+
+        void onPaymentStatus(String paymentId, PaymentStatus status, String errorMessage, LocalDateTime updatedAt);
+
+        void onSettlement(String paymentId, SettlementStep step, Money reservation);
+
+        void onPaymentsDropped(LocalDate cutoff);
+    }
+
+    enum DisabledJournal implements PaymentJournal {
+        INSTANCE;
+
+        @Override
+        public boolean isEnabled() { return false; }
+
+        @Override
+        public boolean hasRecords() { return false; }
+
+        @Override
+        public void userSaved(User user) { }
+
+        @Override
+        public void balanceChanged(User user) { }
+
+        @Override
+        public void balancesChanged(User first, User second) { }
+
+        @Override
+        public void balancesChanged(Collection<User> users) { }
+
+        @Override
+        public void paymentCreated(Payment payment) { }
+
+        @Override
+        public void paymentStatusChanged(Payment payment) { }
+
+        @Override
+        public void settlementChanged(Collection<Payment> payments, Collection<User> users) { }
+
+        @Override
+        public void paymentsDropped(LocalDate cutoff) { }
+
+        @Override
+        public void awaitDurable() { }
+    }
+}
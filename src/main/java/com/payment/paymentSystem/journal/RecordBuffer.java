@@ -0,0 +1,83 @@
+package com.payment.paymentSystem.journal;
+
+import com.payment.paymentSystem.codec.BinaryFormat;
+import com.payment.paymentSystem.codec.PaymentCodec;
+import com.payment.paymentSystem.codec.UserCodec;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/**
+ * Growable, reusable buffer holding one encoded record. Entities are written with the
+ * shared codecs, so the journal and snapshots use the same layout.
+ */
+final class RecordBuffer {
+    private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+    void clear() {
+        buffer.clear();
+    }
+
+    int length() {
+        return buffer.position();
+    }
+
+    byte[] array() {
+        return buffer.array();
+    }
+
+    void putByte(byte value) {
+        ensureCapacity(1);
+        buffer.put(value);
+    }
+
+    void putInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+    }
+
+    void putLong(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+    }
+
+    void putString(String value) {
+        ensureCapacity(BinaryFormat.stringSize(value));
+        BinaryFormat.putString(buffer, value);
+    }
+
+    void putTime(LocalDateTime time) {
+        ensureCapacity(8);
+        BinaryFormat.putTime(buffer, time);
+    }
+
+    void putTimeMicros(long micros) {
+        ensureCapacity(8);
+        buffer.putLong(micros);
+    }
+
+    void putEnum(Enum<?> value) {
+        ensureCapacity(1);
+        BinaryFormat.putEnum(buffer, value);
+    }
+
+    void putUser(User user) {
+        ensureCapacity(UserCodec.encodedSize(user));
+        UserCodec.encode(user, buffer);
+    }
+
+    void putPayment(Payment payment) {
+        ensureCapacity(PaymentCodec.encodedSize(payment));
+        PaymentCodec.encode(payment, buffer);
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.payment.paymentSystem.journal;
+
+import com.payment.paymentSystem.codec.PaymentCodec;
+import com.payment.paymentSystem.codec.UserCodec;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshots of users and payments, each tagged with the journal position it covers.
+ *
+ * <p>A snapshot is {@code [magic][version][journal position]}, then {@code [tag][length][record]}
+ * entries encoded with the shared entity codecs, an end tag and a CRC32 of everything before it.
+ * Files are written under a temporary name and atomically renamed, so a crash mid-write
+ * leaves the previous snapshot in place.
+ */
+public final class SnapshotStore {
+    private static final int MAGIC = 0x50534E50;
+    private static final int VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+
+    private static final byte END = 0;
+    private static final byte USER = 1;
+    private static final byte PAYMENT = 2;
+
+    private final Path directory;
+
+    public SnapshotStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Writes a snapshot and removes older ones. The collections may be modified concurrently;
+     * any change that is missed or half-seen is covered by journal records after
+     * {@code journalPosition}, because every record carries absolute state.
+     */
+    public Path write(long journalPosition, Iterable<User> users, Iterable<Payment> payments) throws IOException {
+        Path target = snapshotPath(journalPosition);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        RecordBuffer record = new RecordBuffer();
+        CRC32 crc = new CRC32();
+        ByteBuffer out = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.putInt(MAGIC).putInt(VERSION).putLong(journalPosition);
+            for (User user : users) {
+                record.clear();
+                record.putUser(user);
+                writeEntry(channel, out, crc, USER, record);
+            }
+            for (Payment payment : payments) {
+                record.clear();
+                record.putPayment(payment);
+                writeEntry(channel, out, crc, PAYMENT, record);
+            }
+            out.put(END);
+            drain(channel, out, crc);
+            out.putLong(crc.getValue());
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Make the rename durable before the snapshots it replaces are gone
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        for (Path older : snapshots()) {
+            if (!older.equals(target)) {
+                Files.deleteIfExists(older);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Feeds the newest intact snapshot to {@code handler}: users through {@code onUser},
+     * payments with their final status through {@code onPaymentCreated}.
+     *
+     * @return the journal position to resume replay from, or {@code 0} when there is no snapshot
+     */
+    public long load(PaymentJournal.ReplayHandler handler) throws IOException {
+        for (Path snapshot : snapshots()) {
+            if (isIntact(snapshot)) {
+                return read(snapshot, handler);
+            }
+        }
+        return 0;
+    }
+
+    private static void writeEntry(FileChannel channel, ByteBuffer out, CRC32 crc, byte tag, RecordBuffer record)
+            throws IOException {
+        int length = record.length();
+        if (out.remaining() < 5 + length) {
+            drain(channel, out, crc);
+        }
+        out.put(tag).putInt(length);
+        if (out.remaining() >= length) {
+            out.put(record.array(), 0, length);
+            return;
+        }
+        drain(channel, out, crc);
+        ByteBuffer large = ByteBuffer.wrap(record.array(), 0, length);
+        crc.update(large.duplicate());
+        while (large.hasRemaining()) {
+            channel.write(large);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer out, CRC32 crc) throws IOException {
+        out.flip();
+        crc.update(out.duplicate());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    private static boolean isIntact(Path snapshot) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 + 1 + 8) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer in = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            long remaining = size - 8;
+            while (remaining > 0) {
+                in.clear();
+                in.limit((int) Math.min(in.capacity(), remaining));
+                int read = channel.read(in);
+                if (read < 0) {
+                    return false;
+                }
+                in.flip();
+                crc.update(in);
+                remaining -= read;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(8);
+            channel.read(trailer, size - 8);
+            return trailer.getLong(0) == crc.getValue();
+        }
+    }
+
+    private static long read(Path snapshot, PaymentJournal.ReplayHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer in = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            in.limit(0);
+            in = fill(channel, in, 16);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Unsupported snapshot format: " + snapshot);
+            }
+            long journalPosition = in.getLong();
+
+            while (true) {
+                in = fill(channel, in, 1);
+                byte tag = in.get();
+                if (tag == END) {
+                    return journalPosition;
+                }
+                in = fill(channel, in, 4);
+                int length = in.getInt();
+                in = fill(channel, in, length);
+                ByteBuffer entry = in.slice(in.position(), length);
+                in.position(in.position() + length);
+                switch (tag) {
+                    case USER -> handler.onUser(UserCodec.decode(entry));
+                    case PAYMENT -> handler.onPaymentCreated(PaymentCodec.decode(entry, handler.clock()));
+                    default -> throw new IOException("Unknown snapshot entry: " + tag);
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer in, int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return in;
+        }
+        if (in.capacity() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocateDirect(bytes);
+            larger.put(in);
+            in = larger;
+        } else {
+            in.compact();
+        }
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) {
+                throw new EOFException("Truncated snapshot");
+            }
+        }
+        in.flip();
+        return in;
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".snap"))
+                    .sorted((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path snapshotPath(long journalPosition) {
+        return directory.resolve(String.format("snapshot-%016x.snap", journalPosition));
+    }
+}
@@ -0,0 +1,114 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.entity.Payment;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, time-expiring map from idempotency key to the payment created for it.
+ *
+ * <p>Every entry lives for the same TTL, so insertion order is also expiry order: one FIFO
+ * queue drives both TTL expiry and the size bound, and each insert does O(1) amortized
+ * eviction work. Memory stays at most {@code maxEntries} entries however high the request rate.
+ */
+public final class IdempotencyCache {
+    public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier nanoClock;
+
+    public IdempotencyCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_ENTRIES);
+    }
+
+    public IdempotencyCache(Duration ttl, int maxEntries) {
+        this(ttl, maxEntries, System::nanoTime);
+    }
+
+    public IdempotencyCache(Duration ttl, int maxEntries, LongSupplier nanoClock) {
+        if (ttl.isNegative() || ttl.isZero() || maxEntries <= 0) {
+            throw new IllegalArgumentException("TTL and capacity must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records {@code payment} under {@code key} unless a live entry already exists.
+     *
+     * @return the payment already recorded under {@code key}, or {@code null} if {@code payment} was recorded
+     */
+    Payment putIfAbsent(String key, Payment payment) {
+        long now = nanoClock.getAsLong();
+        expire(now);
+        Entry fresh = new Entry(key, payment, now + ttlNanos);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                insertionOrder.add(fresh);
+                if (queued.incrementAndGet() > maxEntries) {
+                    evictOldest();
+                }
+                return null;
+            }
+            if (existing.expiresAt - now > 0) {
+                return existing.payment;
+            }
+            entries.remove(key, existing);
+        }
+    }
+
+    /** Forgets {@code key} if it still maps to {@code payment}, e.g. when the payment was rejected. */
+    void remove(String key, Payment payment) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.payment == payment) {
+            entries.remove(key, entry);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void expire(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && oldest.expiresAt - now <= 0) {
+            if (insertionOrder.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private void evictOldest() {
+        Entry oldest = insertionOrder.poll();
+        if (oldest == null) {
+            return;
+        }
+        queued.decrementAndGet();
+        entries.remove(oldest.key, oldest);
+    }
+
+    private static final class Entry {
+        final String key;
+        final Payment payment;
+        final long expiresAt;
+
+        Entry(String key, Payment payment, long expiresAt) {
+            this.key = key;
+            this.payment = payment;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
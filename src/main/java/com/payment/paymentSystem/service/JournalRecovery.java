@@ -0,0 +1,89 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import com.payment.paymentSystem.journal.MappedPaymentJournal;
+import com.payment.paymentSystem.journal.PaymentJournal;
+import com.payment.paymentSystem.journal.SnapshotStore;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Rebuilds service state from a journal after a restart. Must run before any new
+ * operations and before event subscribers are attached, so restored transitions
+ * are neither journaled again nor published. Payments the restart left {@code PENDING}
+ * are then finished from their last journaled settlement step, and those outcomes are journaled.
+ */
+public final class JournalRecovery {
+
+    private JournalRecovery() {
+    }
+
+    /** @return the journal position recovery stopped at */
+    public static long recover(MappedPaymentJournal journal, UserService userService, PaymentService paymentService)
+            throws IOException {
+        long position = journal.replay(0, new ServiceReplayHandler(userService, paymentService));
+        paymentService.resolveInterruptedPayments();
+        return position;
+    }
+
+    /** Loads the latest snapshot, then replays only the journal records written after it. */
+    public static long recover(MappedPaymentJournal journal, SnapshotStore snapshots,
+                               UserService userService, PaymentService paymentService) throws IOException {
+        ServiceReplayHandler handler = new ServiceReplayHandler(userService, paymentService);
+        long position = journal.replay(snapshots.load(handler), handler);
+        paymentService.resolveInterruptedPayments();
+        return position;
+    }
+
+    private static final class ServiceReplayHandler implements PaymentJournal.ReplayHandler {
+        private final UserService userService;
+        private final PaymentService paymentService;
+
+        ServiceReplayHandler(UserService userService, PaymentService paymentService) {
+            this.userService = userService;
+            this.paymentService = paymentService;
+        }
+
+        @Override
+        public PaymentClock clock() {
+            return userService.getClock();
+        }
+
+        @Override
+        public void onUser(User user) {
+            userService.restoreUser(user);
+        }
+
+        @Override
+        public void onBalance(String userId, Currency currency, long balanceMinor) {
+            userService.restoreBalance(userId, currency, balanceMinor);
+        }
+
+        @Override
+        public void onPaymentCreated(Payment payment) {
+            paymentService.restorePayment(payment);
+        }
+
+        @Override
+        public void onPaymentStatus(String paymentId, PaymentStatus status, String errorMessage, LocalDateTime updatedAt) {
+            paymentService.restorePaymentStatus(paymentId, status, errorMessage, updatedAt);
+        }
+
+        @Override
+        public void onSettlement(String paymentId, SettlementStep step, Money reservation) {
+            paymentService.restoreSettlement(paymentId, step, reservation);
+        }
+
+        @Override
+        public void onPaymentsDropped(LocalDate cutoff) {
+            paymentService.dropPartitionsBefore(cutoff);
+        }
+    }
+}
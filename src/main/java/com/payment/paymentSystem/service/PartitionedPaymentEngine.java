@@ -0,0 +1,153 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.event.MpscRingBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer payment engine. Accounts are split into partitions by account slot, and each
+ * partition runs the balance changes of its accounts on one dedicated thread, in queue order.
+ * A {@link PaymentService} built on the engine debits a transfer on the sender's partition and
+ * credits it by a message to the receiver's partition.
+ *
+ * <p>Clients submit through a bounded {@link MpscRingBuffer} per partition and wait while it is
+ * full. Messages between partitions go through an unbounded inbox that is drained first, so a
+ * credit or refund hop is never refused and every debit is followed by its credit or refund.
+ *
+ * <p>The partition count is a power of two no larger than the number of balance lock stripes,
+ * so every stripe belongs to exactly one partition: the locks that partition threads take are
+ * only ever contended by writers outside the engine, such as admin credits.
+ *
+ * <p>The engine counts queued and running tasks. {@link #close()} refuses new submissions, waits
+ * for the count to reach zero and only then stops the workers, so a hop posted by a running task
+ * always finds its partition alive.
+ */
+public final class PartitionedPaymentEngine implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final Partition[] partitions;
+    private final int mask;
+    /** Tasks submitted and not yet finished; a task posts its follow-up before it counts down. */
+    private final AtomicLong pending = new AtomicLong();
+    private volatile boolean accepting = true;
+
+    public PartitionedPaymentEngine(int partitionCount) {
+        this(partitionCount, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public PartitionedPaymentEngine(int partitionCount, int queueCapacity) {
+        if (partitionCount < 1 || Integer.bitCount(partitionCount) != 1 || partitionCount > UserService.LOCK_STRIPES) {
+            throw new IllegalArgumentException("Partition count must be a power of two up to " + UserService.LOCK_STRIPES);
+        }
+        this.partitions = new Partition[partitionCount];
+        this.mask = partitionCount - 1;
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(this, i, queueCapacity);
+        }
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /** The partition that owns the account in {@code slot}; unknown accounts ({@code -1}) go to the first one. */
+    Executor partitionFor(int slot) {
+        return partitions[slot < 0 ? 0 : slot & mask];
+    }
+
+    /** Stops accepting submissions and waits until every accepted task, and every hop it posts, has run. */
+    @Override
+    public void close() {
+        accepting = false;
+        while (pending.get() != 0) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.worker);
+        }
+        for (Partition partition : partitions) {
+            try {
+                partition.worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static final class Partition implements Executor {
+        private final PartitionedPaymentEngine engine;
+        private final MpscRingBuffer<Runnable> submissions;
+        private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+        private final Worker worker;
+        private volatile boolean running = true;
+        private volatile boolean idle;
+
+        Partition(PartitionedPaymentEngine engine, int index, int queueCapacity) {
+            this.engine = engine;
+            this.submissions = new MpscRingBuffer<>(queueCapacity);
+            this.worker = new Worker(this::drainLoop, "payment-partition-" + index);
+            this.worker.start();
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            // Counted before the closed check, so close() either refuses the task or waits for it
+            engine.pending.incrementAndGet();
+            if (Thread.currentThread() instanceof Worker) {
+                inbox.add(task);
+            } else {
+                if (!engine.accepting) {
+                    engine.pending.decrementAndGet();
+                    throw new RejectedExecutionException("Payment engine is closed");
+                }
+                while (!submissions.offer(task)) {
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+                }
+            }
+            if (idle) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        private void drainLoop() {
+            while (running || !inbox.isEmpty() || !submissions.isEmpty()) {
+                Runnable task = inbox.poll();
+                if (task == null) {
+                    task = submissions.poll();
+                }
+                if (task == null) {
+                    idle = true;
+                    if (inbox.isEmpty() && submissions.isEmpty() && running) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // a failing task must not stop the partition; payment stages report their own errors
+                } finally {
+                    engine.pending.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private static final class Worker extends Thread {
+        Worker(Runnable loop, String name) {
+            super(loop, name);
+            setDaemon(true);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Payment;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Concurrent set of payments ordered by amount, then id, so amount range queries
+ * cost O(log n + k) instead of a full scan.
+ */
+final class PaymentAmountIndex {
+    static final Comparator<Payment> BY_AMOUNT = Comparator
+            .comparingLong(Payment::getAmountMinor)
+            .thenComparingLong(Payment::getNumericId)
+            .thenComparing(Payment::getId);
+
+    private static final long LOWEST_ID = 0;
+    private static final long HIGHEST_ID = Long.MAX_VALUE;
+
+    private final ConcurrentSkipListSet<Payment> payments = new ConcurrentSkipListSet<>(BY_AMOUNT);
+    private final PaymentClock clock;
+
+    PaymentAmountIndex(PaymentClock clock) {
+        this.clock = clock;
+    }
+
+    void add(Payment payment) {
+        payments.add(payment);
+    }
+
+    void remove(Payment payment) {
+        payments.remove(payment);
+    }
+
+    /** Payments with {@code minAmountMinor <= amount <= maxAmountMinor}, smallest first, as a live view. */
+    NavigableSet<Payment> range(long minAmountMinor, long maxAmountMinor) {
+        if (minAmountMinor > maxAmountMinor) {
+            return Collections.emptyNavigableSet();
+        }
+        return payments.subSet(probe(minAmountMinor, LOWEST_ID), false, probe(maxAmountMinor, HIGHEST_ID), false);
+    }
+
+    private Payment probe(long amountMinor, long numericId) {
+        Payment probe = PaymentTimeline.probe(numericId, clock);
+        probe.setAmountMinor(amountMinor);
+        return probe;
+    }
+}
@@ -0,0 +1,53 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentPage;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keyset cursors over newest-first listings. A cursor encodes the createdAt and id of the
+ * last payment returned, so the next page resumes with a skip-list seek instead of an offset.
+ * The createdAt is only needed to place ids from before time-ordered ids.
+ */
+final class PaymentCursor {
+
+    private PaymentCursor() {
+    }
+
+    static String encode(Payment payment) {
+        String key = payment.getCreatedAtMicros() + ":" + payment.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return a probe ordered exactly like the payment the cursor was taken from, or {@code null} for no cursor */
+    static Payment decode(String cursor, PaymentClock clock) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf(':');
+            long micros = Long.parseLong(key.substring(0, separator));
+            return PaymentTimeline.probe(micros, key.substring(separator + 1), clock);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    static PaymentPage page(Iterator<Payment> payments, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<Payment> page = new ArrayList<>(Math.min(limit, 256));
+        while (page.size() < limit && payments.hasNext()) {
+            page.add(payments.next());
+        }
+        String next = payments.hasNext() && !page.isEmpty() ? encode(page.get(page.size() - 1)) : null;
+        return new PaymentPage(page, next);
+    }
+}
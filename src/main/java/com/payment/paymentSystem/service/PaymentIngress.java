@@ -0,0 +1,265 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Disruptor-style front end for payment submission. The ring holds preallocated
+ * {@link PaymentRequest}s: a producer claims a sequence with {@link #next()}, fills the request
+ * from {@link #get(long)} in place and {@link #publish(long) publishes} it. One consumer thread
+ * hands every run of published requests to {@link PaymentService#processBatch(List)}, so a burst
+ * is validated, settled and made durable together, and reports each payment to the handler.
+ *
+ * <p>Every claimed sequence must be published, or the consumer stops at it. A claimed slot
+ * belongs to its producer until then; afterwards the consumer owns it until the batch completes.
+ */
+public final class PaymentIngress implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_MAX_BATCH = 256;
+
+    /** How producers wait for free slots and the consumer waits for published ones. */
+    public enum WaitStrategy {
+        /** Spins on the CPU; lowest latency, but needs a core per waiting thread. */
+        BUSY_SPIN {
+            @Override
+            void pause(int attempt) {
+                Thread.onSpinWait();
+            }
+        },
+        /** Spins briefly, then yields the CPU to other runnable threads. */
+        YIELDING {
+            @Override
+            void pause(int attempt) {
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+        },
+        /** Spins and yields briefly, then parks; cheapest while the ring is idle. */
+        PARKING {
+            @Override
+            void pause(int attempt) {
+                if (attempt < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else if (attempt < 2 * SPIN_TRIES) {
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(PARK_NANOS);
+                }
+            }
+        };
+
+        private static final int SPIN_TRIES = 100;
+        private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+        /** Waits once and returns the next attempt number, which stops growing once parking. */
+        int idle(int attempt) {
+            pause(attempt);
+            return Math.min(attempt + 1, 2 * SPIN_TRIES);
+        }
+
+        abstract void pause(int attempt);
+    }
+
+    /** Receives the outcome of every published request, on the consumer thread. */
+    @FunctionalInterface
+    public interface Handler {
+        void onPayment(long sequence, Payment payment);
+    }
+
+    private final PaymentService paymentService;
+    private final Handler handler;
+    private final WaitStrategy waitStrategy;
+    private final int maxBatch;
+    private final int mask;
+    private final PaymentRequest[] requests;
+    /** Sequence last published into each slot; the consumer reads a slot once it matches. */
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final List<PaymentRequest> batch;
+    private final LongAdder failed = new LongAdder();
+    private final Thread consumer;
+    private volatile boolean running = true;
+    /** Every sequence below this one has been processed and its slot may be claimed again. */
+    private volatile long processed;
+
+    public PaymentIngress(PaymentService paymentService, Handler handler) {
+        this(paymentService, handler, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH, WaitStrategy.PARKING);
+    }
+
+    /**
+     * @param maxBatch most requests handed to {@link PaymentService#processBatch(List)} at once
+     */
+    public PaymentIngress(PaymentService paymentService, Handler handler, int capacity, int maxBatch,
+                          WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+        }
+        this.paymentService = paymentService;
+        this.handler = handler != null ? handler : (sequence, payment) -> { };
+        this.waitStrategy = waitStrategy;
+        this.maxBatch = Math.min(maxBatch, capacity);
+        this.mask = capacity - 1;
+        this.requests = new PaymentRequest[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            requests[i] = PaymentRequest.builder().build();
+            published.set(i, -1);
+        }
+        this.batch = new ArrayList<>(this.maxBatch);
+        this.consumer = new Thread(this::consumeLoop, "payment-ingress");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Claims the next slot, waiting while the ring is full. The slot's request is reset to the
+     * builder defaults.
+     *
+     * @throws RejectedExecutionException if the ingress is closed
+     */
+    public long next() {
+        if (!running) {
+            throw new RejectedExecutionException("Payment ingress is closed");
+        }
+        long sequence = claimed.getAndIncrement();
+        for (int attempt = 0; sequence - processed >= requests.length; ) {
+            attempt = waitStrategy.idle(attempt);
+        }
+        return reset(sequence);
+    }
+
+    /** Claims the next slot, or returns {@code -1} at once if the ring is full or closed. */
+    public long tryNext() {
+        while (running) {
+            long sequence = claimed.get();
+            if (sequence - processed >= requests.length) {
+                return -1;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return reset(sequence);
+            }
+        }
+        return -1;
+    }
+
+    /** The request in a claimed slot, to be filled in place before {@link #publish(long)}. */
+    public PaymentRequest get(long sequence) {
+        return requests[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /** Claims, fills and publishes one transfer. */
+    public long submit(String senderUserId, String receiverUserId, long amountMinor, Currency currency) {
+        long sequence = next();
+        try {
+            PaymentRequest request = get(sequence);
+            request.setSenderUserId(senderUserId);
+            request.setReceiverUserId(receiverUserId);
+            request.setCurrency(currency);
+            request.setAmountMinor(Math.max(0, amountMinor));
+        } finally {
+            publish(sequence);
+        }
+        return sequence;
+    }
+
+    public int capacity() {
+        return requests.length;
+    }
+
+    /** Number of requests processed so far. */
+    public long getProcessedCount() {
+        return processed;
+    }
+
+    /** Requests lost because their batch failed with an unexpected error. */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /** Blocks until every request claimed before this call has been processed. */
+    public void flush() {
+        long target = claimed.get();
+        for (int attempt = 0; processed < target && consumer.isAlive(); ) {
+            attempt = waitStrategy.idle(attempt);
+        }
+    }
+
+    /** Stops accepting requests and waits until the consumer has processed the claimed ones. */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long reset(long sequence) {
+        PaymentRequest request = get(sequence);
+        request.setSenderUserId(null);
+        request.setReceiverUserId(null);
+        request.setAmountMinor(0);
+        request.setCurrency(Currency.GEL);
+        request.setPaymentMethod(PaymentMethod.BANK_TRANSFER);
+        request.setDescription(null);
+        request.setReferenceNumber(null);
+        request.setIdempotencyKey(null);
+        return sequence;
+    }
+
+    private void consumeLoop() {
+        long next = 0;
+        int attempt = 0;
+        while (running || next < claimed.get()) {
+            long end = next;
+            while (end - next < maxBatch && published.get((int) end & mask) == end) {
+                batch.add(requests[(int) end & mask]);
+                end++;
+            }
+            if (end == next) {
+                attempt = waitStrategy.idle(attempt);
+                continue;
+            }
+            attempt = 0;
+            Payment[] payments = null;
+            try {
+                payments = paymentService.processBatch(batch);
+            } catch (RuntimeException e) {
+                // a failing batch must not stop ingestion
+                failed.add(end - next);
+            }
+            for (int i = 0; payments != null && i < payments.length; i++) {
+                try {
+                    handler.onPayment(next + i, payments[i]);
+                } catch (RuntimeException e) {
+                    // a failing handler must not stop ingestion either
+                }
+            }
+            batch.clear();
+            next = end;
+            processed = end;
+        }
+    }
+}
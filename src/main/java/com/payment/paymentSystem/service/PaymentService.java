@@ -1,22 +1,400 @@
 package com.payment.paymentSystem.service;
 
+import com.payment.paymentSystem.analytics.AmountSummary;
+import com.payment.paymentSystem.analytics.PaymentColumnStore;
+import com.payment.paymentSystem.analytics.PaymentQuery;
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.enums.Currency;
 import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import com.payment.paymentSystem.entity.Money;
 import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentIdGenerator;
+import com.payment.paymentSystem.entity.PaymentPage;
 import com.payment.paymentSystem.entity.PaymentRequest;
 import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.event.PaymentEvent;
+import com.payment.paymentSystem.event.PaymentEventSink;
+import com.payment.paymentSystem.fx.FxRateTable;
+import com.payment.paymentSystem.journal.PaymentJournal;
+import com.payment.paymentSystem.codec.BinaryFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class PaymentService {
+    private static final ExecutorService DEFAULT_ASYNC_EXECUTOR = newAsyncExecutor();
+
     private final Map<String, Payment> payments;
+    private final Map<String, PaymentTimeline> sentIndex;
+    private final Map<String, PaymentTimeline> receivedIndex;
+    private final ConcurrentSkipListMap<LocalDate, PaymentTimeline> dailyPartitions;
+    private final PaymentAmountIndex amountIndex;
+    private final Map<PaymentStatus, PaymentTimeline> statusIndex;
+    private final Map<String, Payment> referenceIndex;
+    private final Map<String, AsyncPayment> inFlightPayments;
+    private final AtomicLong referenceSequence = new AtomicLong();
+    private final PaymentStatistics statistics = new PaymentStatistics();
+    private final Payment.StatusListener statusListener = this::onPaymentStatusChanged;
     private final UserService userService;
+    private final Executor asyncExecutor;
+    private final PaymentEventSink eventSink;
+    private final PaymentJournal journal;
+    private final PaymentColumnStore columnStore;
+    private final IdempotencyCache idempotencyCache;
+    private final PaymentClock clock;
+    private final PaymentIdGenerator idGenerator;
+    private final PartitionedPaymentEngine engine;
 
     public PaymentService(UserService userService) {
-        this.payments = new HashMap<>();
+        this(userService, DEFAULT_ASYNC_EXECUTOR);
+    }
+
+    public PaymentService(UserService userService, Executor asyncExecutor) {
+        this(userService, asyncExecutor, null);
+    }
+
+    /**
+     * @param columnStore optional columnar copy of the store that analytics queries scan
+     *                    instead of the payment objects; {@code null} to disable
+     */
+    public PaymentService(UserService userService, Executor asyncExecutor, PaymentColumnStore columnStore) {
+        this(userService, asyncExecutor, columnStore, new IdempotencyCache());
+    }
+
+    /**
+     * @param idempotencyCache remembers recent payments by idempotency key, so a retried request
+     *                         returns the original payment instead of moving money again
+     */
+    public PaymentService(UserService userService, Executor asyncExecutor, PaymentColumnStore columnStore,
+                          IdempotencyCache idempotencyCache) {
+        this(userService, asyncExecutor, columnStore, idempotencyCache, null);
+    }
+
+    /** Creates a service that settles single payments on {@code engine}; see {@link #processPaymentAsync}. */
+    public PaymentService(UserService userService, PartitionedPaymentEngine engine) {
+        this(userService, DEFAULT_ASYNC_EXECUTOR, null, new IdempotencyCache(), engine);
+    }
+
+    /**
+     * @param engine optional single-writer engine that runs the balance stages of single
+     *               payments on the partitions owning the accounts; {@code null} to settle
+     *               them under the account locks instead
+     */
+    public PaymentService(UserService userService, Executor asyncExecutor, PaymentColumnStore columnStore,
+                          IdempotencyCache idempotencyCache, PartitionedPaymentEngine engine) {
+        this.clock = userService.getClock();
+        this.payments = new ConcurrentHashMap<>();
+        this.sentIndex = new ConcurrentHashMap<>();
+        this.receivedIndex = new ConcurrentHashMap<>();
+        this.dailyPartitions = new ConcurrentSkipListMap<>();
+        // Filled once and never resized, so the EnumMap itself is only ever read concurrently
+        this.statusIndex = new EnumMap<>(PaymentStatus.class);
+        for (PaymentStatus status : PaymentStatus.values()) {
+            statusIndex.put(status, new PaymentTimeline(clock));
+        }
+        this.amountIndex = new PaymentAmountIndex(clock);
+        this.referenceIndex = new ConcurrentHashMap<>();
+        this.inFlightPayments = new ConcurrentHashMap<>();
         this.userService = userService;
+        this.asyncExecutor = asyncExecutor;
+        this.eventSink = userService.getEventSink();
+        this.journal = userService.getJournal();
+        this.columnStore = columnStore;
+        this.idempotencyCache = idempotencyCache;
+        this.engine = engine;
+        // Services on the system clock share one generator, so their ids never collide
+        this.idGenerator = clock == PaymentIdGenerator.getDefault().getClock()
+                ? PaymentIdGenerator.getDefault()
+                : new PaymentIdGenerator(PaymentIdGenerator.DEFAULT_NODE, clock);
     }
 
+    /**
+     * Runs a payment synchronously. A request whose idempotency key was seen recently
+     * returns the payment created the first time, without running again.
+     */
     public Payment processPayment(PaymentRequest request) {
+        Payment payment = new Payment(request, idGenerator);
+        Payment original = claimIdempotencyKey(request, payment);
+        if (original != null) {
+            return original;
+        }
+        admitPayment(request, payment);
+        if (engine != null) {
+            return submitToPartitions(payment).join();
+        }
+
+        if (!beginSettlement(payment)) {
+            return payment;
+        }
+        try {
+            boolean transferred = userService.transferMinor(payment);
+            if (transferred) {
+                payment.markAsCompleted();
+            } else {
+                payment.markAsFailed("Insufficient balance");
+            }
+
+        } catch (Exception e) {
+            payment.markAsFailed("System error: " + e.getMessage());
+        } finally {
+            inFlightPayments.remove(payment.getId());
+        }
+
+        journal.awaitDurable();
+        return payment;
+    }
+
+    /**
+     * Runs a payment through validate, reserve, settle and finalize stages on the async executor.
+     * The payment is recorded as {@code PENDING} after validation and stays observable in that
+     * state until the final stage; the sender's funds are held from the reserve stage onwards.
+     * Validation errors complete the future exceptionally. A duplicate of a recent request
+     * completes immediately with the original payment, which may still be in flight.
+     *
+     * <p>With a {@link PartitionedPaymentEngine}, validation runs on the calling thread, the
+     * reserve stage on the sender's partition and the settle stage on the receiver's partition.
+     */
+    public CompletableFuture<Payment> processPaymentAsync(PaymentRequest request) {
+        Payment payment = new Payment(request, idGenerator);
+        try {
+            Payment original = claimIdempotencyKey(request, payment);
+            if (original != null) {
+                return CompletableFuture.completedFuture(original);
+            }
+            if (engine != null) {
+                admitPayment(request, payment);
+                return submitToPartitions(payment);
+            }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    admitPayment(request, payment);
+                    AsyncPayment inFlight = new AsyncPayment(payment);
+                    inFlightPayments.put(payment.getId(), inFlight);
+                    return inFlight;
+                }, asyncExecutor)
+                .thenApplyAsync(this::reserveFunds, asyncExecutor)
+                .thenApplyAsync(this::settleFunds, asyncExecutor)
+                .thenApply(this::refundFunds)
+                .thenApply(this::finalizePayment);
+    }
+
+    /**
+     * Debits on the sender's partition, then hands the payment to the receiver's partition to
+     * credit. A failed credit hands it back to the sender's partition for the refund, so every
+     * account is only ever written by its own partition. A payment the closed engine refuses
+     * fails at once.
+     */
+    private CompletableFuture<Payment> submitToPartitions(Payment payment) {
+        AsyncPayment inFlight = new AsyncPayment(payment);
+        inFlightPayments.put(payment.getId(), inFlight);
+        Executor senderPartition = engine.partitionFor(userService.accountSlot(payment.getSenderId()));
+        Executor receiverPartition = engine.partitionFor(userService.accountSlot(payment.getReceiverId()));
+        // The whole pipeline is attached before it starts, so every hop after the first is posted
+        // by a partition thread and only the first one can be refused by a closed engine
+        CompletableFuture<AsyncPayment> admitted = new CompletableFuture<>();
+        CompletableFuture<AsyncPayment> reserved = admitted.thenApplyAsync(this::reserveFunds, senderPartition);
+        CompletableFuture<Payment> finalized = reserved
+                .thenApplyAsync(this::settleFunds, receiverPartition)
+                .thenCompose(settled -> settled.reserved && !settled.settled
+                        ? CompletableFuture.supplyAsync(() -> refundFunds(settled), senderPartition)
+                        : CompletableFuture.completedFuture(settled))
+                // Off the partition threads, since it waits for the journal
+                .thenApplyAsync(this::finalizePayment, asyncExecutor);
+        admitted.complete(inFlight);
+        if (reserved.isCompletedExceptionally()) {
+            inFlightPayments.remove(payment.getId());
+            payment.markAsFailed("System error: Payment engine is closed");
+            journal.awaitDurable();
+            return CompletableFuture.completedFuture(payment);
+        }
+        return finalized;
+    }
+
+    private AsyncPayment reserveFunds(AsyncPayment inFlight) {
+        Payment payment = inFlight.payment;
+        if (!payment.isPending()) {
+            return inFlight;
+        }
+        try {
+            inFlight.reserved = userService.reserveMinor(payment) != null;
+            if (!inFlight.reserved) {
+                payment.markAsFailed("Insufficient balance");
+            }
+        } catch (Exception e) {
+            payment.markAsFailed("System error: " + e.getMessage());
+        }
+        return inFlight;
+    }
+
+    /** Credits the receiver; a payment that cannot be credited keeps its reservation for {@link #refundFunds}. */
+    private AsyncPayment settleFunds(AsyncPayment inFlight) {
+        Payment payment = inFlight.payment;
+        if (!inFlight.reserved) {
+            return inFlight;
+        }
+        // Serialized with cancelPayment: once settled or failed, the payment can no longer be cancelled
+        synchronized (payment) {
+            if (!payment.isPending()) {
+                return inFlight;
+            }
+            try {
+                if (userService.settleMinor(payment)) {
+                    inFlight.settled = true;
+                } else {
+                    inFlight.failure = "Failed to add amount to receiver";
+                }
+            } catch (Exception e) {
+                inFlight.failure = "System error: " + e.getMessage();
+            }
+        }
+        return inFlight;
+    }
+
+    /** Returns an unsettled payment's reservation to its sender, then fails the payment if settling did. */
+    private AsyncPayment refundFunds(AsyncPayment inFlight) {
+        if (inFlight.reserved && !inFlight.settled) {
+            userService.releaseMinor(inFlight.payment);
+            inFlight.reserved = false;
+            if (inFlight.failure != null) {
+                inFlight.payment.markAsFailed(inFlight.failure);
+            }
+        }
+        return inFlight;
+    }
+
+    /**
+     * Registers a payment that is about to be settled in one step, so {@link #cancelPayment}
+     * refuses it from here on and cannot flip it to {@code CANCELLED} after its money moved.
+     *
+     * @return false if the payment was cancelled before settlement began
+     */
+    private boolean beginSettlement(Payment payment) {
+        synchronized (payment) {
+            if (!payment.isPending()) {
+                return false;
+            }
+            AsyncPayment settling = new AsyncPayment(payment);
+            settling.settled = true;
+            inFlightPayments.put(payment.getId(), settling);
+            return true;
+        }
+    }
+
+    private Payment finalizePayment(AsyncPayment inFlight) {
+        Payment payment = inFlight.payment;
+        if (inFlight.settled) {
+            payment.markAsCompleted();
+        }
+        inFlightPayments.remove(payment.getId());
+        journal.awaitDurable();
+        return payment;
+    }
+
+    private static final class AsyncPayment {
+        final Payment payment;
+        volatile boolean reserved;
+        /** Credited, or being settled in one step; either way the payment can no longer be cancelled. */
+        volatile boolean settled;
+        /** Why the credit failed; the payment fails once refunded and can no longer be cancelled. */
+        volatile String failure;
+
+        AsyncPayment(Payment payment) {
+            this.payment = payment;
+        }
+    }
+
+    public Payment[] processBatch(List<PaymentRequest> requests) {
+        return processBatch(requests, false);
+    }
+
+    /**
+     * Validates and records every request first, then settles all accepted transfers
+     * in a single pass that locks each involved account once.
+     * Requests that fail validation get an unrecorded {@code FAILED} payment in their slot.
+     *
+     * @param netting settle the batch on net account positions, so opposing transfers offset each other
+     * @return one payment per request, in request order
+     */
+    public Payment[] processBatch(List<PaymentRequest> requests, boolean netting) {
+        int size = requests.size();
+        Payment[] results = new Payment[size];
+        String[] senderIds = new String[size];
+        String[] receiverIds = new String[size];
+        Currency[] currencies = new Currency[size];
+        long[] amountsMinor = new long[size];
+
+        for (int i = 0; i < size; i++) {
+            PaymentRequest request = requests.get(i);
+            Payment payment = new Payment(request, idGenerator);
+            try {
+                Payment original = claimIdempotencyKey(request, payment);
+                if (original != null) {
+                    results[i] = original;
+                    continue;
+                }
+                admitPayment(request, payment);
+                results[i] = payment;
+                senderIds[i] = request.getSenderUserId();
+                receiverIds[i] = request.getReceiverUserId();
+                currencies[i] = request.getCurrency();
+                amountsMinor[i] = request.getAmountMinor();
+            } catch (IllegalArgumentException e) {
+                payment.markAsFailed(e.getMessage());
+                results[i] = payment;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (amountsMinor[i] > 0 && !beginSettlement(results[i])) {
+                amountsMinor[i] = 0;
+            }
+        }
+
+        try {
+            String[] errors = new String[size];
+            try {
+                userService.settleBatchMinor(senderIds, receiverIds, currencies, amountsMinor, results, errors, netting);
+            } catch (Exception e) {
+                // Each payment's settlement step tells whether its money moved before the failure
+                Arrays.fill(errors, "System error: " + e.getMessage());
+            }
+
+            for (int i = 0; i < size; i++) {
+                if (amountsMinor[i] <= 0) {
+                    continue;
+                }
+                if (results[i].getSettlement() == SettlementStep.SETTLED) {
+                    results[i].markAsCompleted();
+                } else {
+                    results[i].markAsFailed(errors[i] != null ? errors[i] : "Insufficient balance");
+                }
+            }
+            return results;
+        } finally {
+            for (int i = 0; i < size; i++) {
+                if (amountsMinor[i] > 0) {
+                    inFlightPayments.remove(results[i].getId());
+                }
+            }
+            journal.awaitDurable();
+        }
+    }
+
+    private void validateRequest(PaymentRequest request) {
         if (!request.isValid()) {
             throw new IllegalArgumentException("Invalid payment request");
         }
@@ -39,48 +417,111 @@ public class PaymentService {
         if (!receiver.get().isActive()) {
             throw new IllegalArgumentException("Receiver user is not active");
         }
+    }
 
-        Payment payment = new Payment(request);
-
-        // Only set auto-generated reference if none provided
-        if (payment.getReference() == null || payment.getReference().isEmpty()) {
-            payment.setReference("PAY_" + System.currentTimeMillis());
+    /**
+     * Returns the payment recently created under the request's idempotency key, or claims the key
+     * for {@code payment} and returns {@code null}. Concurrent retries race on the claim, so only
+     * one of them ever runs.
+     */
+    private Payment claimIdempotencyKey(PaymentRequest request, Payment payment) {
+        String key = request.getIdempotencyKey();
+        if (key.isEmpty()) {
+            return null;
+        }
+        Payment original = idempotencyCache.putIfAbsent(key, payment);
+        if (original != null && !isSameRequest(original, request)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different payment");
         }
+        return original;
+    }
 
-        payments.put(payment.getId(), payment);
+    private static boolean isSameRequest(Payment payment, PaymentRequest request) {
+        return payment.getAmountMinor() == request.getAmountMinor()
+                && payment.getCurrency() == request.getCurrency()
+                && Objects.equals(payment.getSenderId(), request.getSenderUserId())
+                && Objects.equals(payment.getReceiverId(), request.getReceiverUserId());
+    }
 
+    /** Validates and records {@code payment}; a rejected request releases its idempotency key. */
+    private void admitPayment(PaymentRequest request, Payment payment) {
         try {
-            if (!sender.get().hasSufficientBalance(request.getAmount())) {
-                payment.markAsFailed("Insufficient balance");
-                System.out.println("Payment failed: Insufficient balance");
-                return payment;
+            validateRequest(request);
+            reserveReference(payment);
+            storePayment(payment);
+        } catch (RuntimeException e) {
+            if (!request.getIdempotencyKey().isEmpty()) {
+                idempotencyCache.remove(request.getIdempotencyKey(), payment);
             }
+            throw e;
+        }
+    }
 
-            boolean deductSuccess = userService.deductBalance(request.getSenderUserId(), request.getAmount());
-            if (!deductSuccess) {
-                payment.markAsFailed("Failed to deduct amount");
-                return payment;
-            }
+    private void reserveReference(Payment payment) {
+        // Only set auto-generated reference if none provided
+        if (payment.getReference() == null || payment.getReference().isEmpty()) {
+            do {
+                payment.setReference(generateReference());
+            } while (referenceIndex.putIfAbsent(payment.getReference(), payment) != null);
+            return;
+        }
 
-            boolean addSuccess = userService.addBalance(request.getReceiverUserId(), request.getAmount());
-            if (!addSuccess) {
-                userService.addBalance(request.getSenderUserId(), request.getAmount());
-                payment.markAsFailed("Failed to add amount to receiver");
-                return payment;
-            }
+        if (referenceIndex.putIfAbsent(payment.getReference(), payment) != null) {
+            throw new IllegalArgumentException("Payment with this reference already exists");
+        }
+    }
 
-            payment.markAsCompleted();
-            System.out.printf("✅ Payment successful: %.2f ₾ from %s to %s%n",
-                    request.getAmount(),
-                    sender.get().getFullName(),
-                    receiver.get().getFullName());
+    private String generateReference() {
+        return "PAY_" + System.currentTimeMillis() + "_" + referenceSequence.incrementAndGet();
+    }
 
-        } catch (Exception e) {
-            payment.markAsFailed("System error: " + e.getMessage());
-            System.out.println("❌ Payment error: " + e.getMessage());
+    private void storePayment(Payment payment) {
+        payments.put(payment.getId(), payment);
+        // Journaled after it becomes visible, so a snapshot taken meanwhile cannot miss it
+        if (journal.isEnabled()) {
+            journal.paymentCreated(payment);
         }
+        indexPayment(payment);
+    }
 
-        return payment;
+    private void indexPayment(Payment payment) {
+        if (columnStore == null) {
+            payment.attachStatusListener(statusListener);
+        } else {
+            int row = columnStore.append(payment);
+            payment.attachStatusListener((p, previous, current) -> {
+                onPaymentStatusChanged(p, previous, current);
+                columnStore.updateStatus(row, current);
+            });
+        }
+        sentIndex.computeIfAbsent(payment.getSenderId(), id -> new PaymentTimeline(clock)).add(payment);
+        receivedIndex.computeIfAbsent(payment.getReceiverId(), id -> new PaymentTimeline(clock)).add(payment);
+        dailyPartitions.computeIfAbsent(PaymentClock.toLocalDate(payment.getCreatedAtMicros()), day -> new PaymentTimeline(clock)).add(payment);
+        amountIndex.add(payment);
+    }
+
+    /**
+     * Runs under the payment's monitor, so concurrent transitions of one payment are applied
+     * to the status sets in order. The new set gains the payment before the old one loses it,
+     * so a listing never misses a payment that is mid-transition.
+     */
+    private void onPaymentStatusChanged(Payment payment, PaymentStatus previous, PaymentStatus current) {
+        statusIndex.get(current).add(payment);
+        if (previous != null) {
+            statusIndex.get(previous).remove(payment);
+        }
+        statistics.onStatusChanged(payment, previous, current);
+        if (previous != null && journal.isEnabled()) {
+            journal.paymentStatusChanged(payment);
+        }
+        if (previous != null && eventSink.isEnabled()) {
+            switch (current) {
+                case COMPLETED -> eventSink.publish(PaymentEvent.paymentCompleted(payment));
+                case FAILED -> eventSink.publish(PaymentEvent.paymentFailed(payment));
+                case CANCELLED -> eventSink.publish(PaymentEvent.paymentCancelled(payment));
+                default -> { }
+            }
+        }
     }
 
     public Optional<Payment> getPaymentById(String paymentId) {
@@ -88,57 +529,166 @@ public class PaymentService {
     }
 
     public Optional<Payment> getPaymentByReference(String reference) {
-        return payments.values().stream()
-                .filter(payment -> reference.equals(payment.getReference()))
-                .findFirst();
+        return Optional.ofNullable(referenceIndex.get(reference));
     }
 
     public List<Payment> getPaymentsByUserId(String userId) {
-        return payments.values().stream()
-                .filter(payment -> userId.equals(payment.getSenderId()) ||
-                        userId.equals(payment.getReceiverId()))
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        return PaymentTimeline.merge(sentIndex.get(userId), receivedIndex.get(userId));
+    }
+
+    public PaymentPage getPaymentsByUserId(String userId, int limit, String cursor) {
+        return PaymentCursor.page(PaymentTimeline.merge(sentIndex.get(userId), receivedIndex.get(userId),
+                PaymentCursor.decode(cursor, clock)), limit);
+    }
+
+    public Stream<Payment> streamPaymentsByUserId(String userId) {
+        return stream(PaymentTimeline.merge(sentIndex.get(userId), receivedIndex.get(userId), null));
     }
 
     public List<Payment> getSentPayments(String userId) {
-        return payments.values().stream()
-                .filter(payment -> userId.equals(payment.getSenderId()))
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        PaymentTimeline timeline = sentIndex.get(userId);
+        return timeline == null ? new ArrayList<>() : timeline.toList();
+    }
+
+    public PaymentPage getSentPayments(String userId, int limit, String cursor) {
+        return PaymentCursor.page(PaymentTimeline.merge(sentIndex.get(userId), null,
+                PaymentCursor.decode(cursor, clock)), limit);
     }
 
     public List<Payment> getReceivedPayments(String userId) {
-        return payments.values().stream()
-                .filter(payment -> userId.equals(payment.getReceiverId()))
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        PaymentTimeline timeline = receivedIndex.get(userId);
+        return timeline == null ? new ArrayList<>() : timeline.toList();
     }
 
+    public PaymentPage getReceivedPayments(String userId, int limit, String cursor) {
+        return PaymentCursor.page(PaymentTimeline.merge(null, receivedIndex.get(userId),
+                PaymentCursor.decode(cursor, clock)), limit);
+    }
+
+    /** Reads the per-status set, so the cost is proportional to the payments in that status. */
     public List<Payment> getPaymentsByStatus(PaymentStatus status) {
-        return payments.values().stream()
-                .filter(payment -> payment.getStatus() == status)
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        return statusIndex.get(status).toList();
+    }
+
+    public PaymentPage getPaymentsByStatus(PaymentStatus status, int limit, String cursor) {
+        return PaymentCursor.page(statusIndex.get(status).after(PaymentCursor.decode(cursor, clock)).iterator(), limit);
+    }
+
+    public Stream<Payment> streamPaymentsByStatus(PaymentStatus status) {
+        return statusIndex.get(status).after(null).stream();
     }
 
     public List<Payment> getAllPayments() {
-        return payments.values().stream()
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        return streamAllPayments().collect(Collectors.toList());
+    }
+
+    /**
+     * One page of all payments, newest first. Pass the previous page's
+     * {@link PaymentPage#getNextCursor()} to continue; cost scales with {@code limit}, not history.
+     */
+    public PaymentPage getAllPayments(int limit, String cursor) {
+        return PaymentCursor.page(newestFirst(PaymentCursor.decode(cursor, clock)), limit);
+    }
+
+    /** Lazily streams all payments newest first, walking the day partitions in order. */
+    public Stream<Payment> streamAllPayments() {
+        return stream(newestFirst(null));
+    }
+
+    private Iterator<Payment> newestFirst(Payment cursor) {
+        NavigableMap<LocalDate, PaymentTimeline> partitions = cursor == null
+                ? dailyPartitions
+                : dailyPartitions.headMap(PaymentClock.toLocalDate(cursor.getCreatedAtMicros()), true);
+        return PaymentTimeline.concat(partitions.descendingMap().values(), cursor);
+    }
+
+    private static Stream<Payment> stream(Iterator<Payment> payments) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(payments,
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
     }
 
     public List<Payment> getPaymentsByAmountRange(double minAmount, double maxAmount) {
-        return payments.values().stream()
-                .filter(payment -> payment.getAmount() >= minAmount && payment.getAmount() <= maxAmount)
-                .sorted((p1, p2) -> p2.getCreatedAt().compareTo(p1.getCreatedAt()))
-                .collect(Collectors.toList());
+        List<Payment> result = new ArrayList<>(amountIndex.range(toMinorBound(minAmount), toMinorBound(maxAmount)));
+        result.sort(PaymentTimeline.NEWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Lazily streams payments within the amount range in ascending amount order, without
+     * materializing or sorting the matches; e.g. {@code streamPaymentsByAmountRange(x, Double.MAX_VALUE)}
+     * for every payment above {@code x}.
+     */
+    public Stream<Payment> streamPaymentsByAmountRange(double minAmount, double maxAmount) {
+        return amountIndex.range(toMinorBound(minAmount), toMinorBound(maxAmount)).stream();
     }
 
     public List<Payment> getTodayPayments() {
-        return payments.values().stream()
-                .filter(payment -> payment.getCreatedAt().toLocalDate().equals(java.time.LocalDate.now()))
-                .collect(Collectors.toList());
+        PaymentTimeline today = dailyPartitions.get(PaymentClock.toLocalDate(clock.currentTimeMicros()));
+        return today == null ? new ArrayList<>() : today.toList();
+    }
+
+    /**
+     * Payments created in {@code [from, to)}, newest first. Only the day partitions that
+     * overlap the range are visited.
+     */
+    public List<Payment> getPaymentsBetween(LocalDateTime from, LocalDateTime to) {
+        List<Payment> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+        for (PaymentTimeline partition : dailyPartitions
+                .subMap(from.toLocalDate(), true, to.toLocalDate(), true).descendingMap().values()) {
+            result.addAll(partition.between(from, to));
+        }
+        return result;
+    }
+
+    /**
+     * Retention: drops every day partition before {@code cutoff} and removes its payments
+     * from all other indexes and from the statistics.
+     *
+     * @return the number of payments dropped
+     */
+    public int dropPartitionsBefore(LocalDate cutoff) {
+        int dropped = 0;
+        Map<LocalDate, PaymentTimeline> expired = dailyPartitions.headMap(cutoff, false);
+        for (Iterator<PaymentTimeline> partitions = expired.values().iterator(); partitions.hasNext(); ) {
+            for (Payment payment : partitions.next().all()) {
+                evictPayment(payment);
+                dropped++;
+            }
+            partitions.remove();
+        }
+        if (columnStore != null) {
+            columnStore.evictCreatedBefore(BinaryFormat.toEpochMicros(cutoff.atStartOfDay()));
+        }
+        if (journal.isEnabled()) {
+            journal.paymentsDropped(cutoff);
+            journal.awaitDurable();
+        }
+        return dropped;
+    }
+
+    private void evictPayment(Payment payment) {
+        synchronized (payment) {
+            payment.attachStatusListener(null);
+            statistics.onStatusChanged(payment, payment.getStatus(), null);
+            statusIndex.get(payment.getStatus()).remove(payment);
+        }
+        payments.remove(payment.getId(), payment);
+        inFlightPayments.remove(payment.getId());
+        if (payment.getReference() != null) {
+            referenceIndex.remove(payment.getReference(), payment);
+        }
+        PaymentTimeline sent = sentIndex.get(payment.getSenderId());
+        if (sent != null) {
+            sent.remove(payment);
+        }
+        PaymentTimeline received = receivedIndex.get(payment.getReceiverId());
+        if (received != null) {
+            received.remove(payment);
+        }
+        amountIndex.remove(payment);
     }
 
     public boolean cancelPayment(String paymentId, String userId) {
@@ -152,63 +702,214 @@ public class PaymentService {
             return false;
         }
 
-        if (payment.getStatus() != PaymentStatus.PENDING) {
-            return false;
-        }
+        synchronized (payment) {
+            if (payment.getStatus() != PaymentStatus.PENDING) {
+                return false;
+            }
 
-        payment.markAsCancelled();
-        System.out.println("Payment cancelled: " + payment.getId());
+            AsyncPayment inFlight = inFlightPayments.get(paymentId);
+            if (inFlight != null && (inFlight.settled || inFlight.failure != null)) {
+                return false;
+            }
+
+            payment.markAsCancelled();
+        }
+        journal.awaitDurable();
         return true;
     }
 
+    /** Installs a payment read back from the journal, unless it is already present. */
+    void restorePayment(Payment payment) {
+        if (payments.containsKey(payment.getId())) {
+            return;
+        }
+        if (payment.getReference() != null) {
+            referenceIndex.put(payment.getReference(), payment);
+        }
+        payments.put(payment.getId(), payment);
+        indexPayment(payment);
+        idGenerator.advancePast(payment.getNumericId());
+    }
+
+    void restoreSettlement(String paymentId, SettlementStep step, Money reservation) {
+        Payment payment = payments.get(paymentId);
+        if (payment != null) {
+            payment.setSettlement(step, reservation);
+        }
+    }
+
+    /**
+     * Finishes the payments a restart left {@code PENDING}, going by how far their money got:
+     * a payment whose receiver was credited completes, one whose sender was charged is refunded
+     * and fails, and one that moved no money fails. A payment that was cancelled or failed
+     * while its sender was still charged only gets the refund. Runs after replay, before new
+     * payments.
+     *
+     * @return the number of payments resolved
+     */
+    int resolveInterruptedPayments() {
+        int resolved = 0;
+        for (Payment payment : payments.values()) {
+            if (inFlightPayments.containsKey(payment.getId())) {
+                continue;
+            }
+            boolean pending = payment.isPending();
+            if (!pending && payment.getSettlement() != SettlementStep.RESERVED) {
+                continue;
+            }
+            switch (payment.getSettlement()) {
+                case SETTLED -> payment.markAsCompleted();
+                case RESERVED -> {
+                    userService.releaseMinor(payment);
+                    if (pending) {
+                        payment.markAsFailed("Interrupted by restart");
+                    }
+                }
+                default -> payment.markAsFailed("Interrupted by restart");
+            }
+            resolved++;
+        }
+        journal.awaitDurable();
+        return resolved;
+    }
+
+    Collection<Payment> storedPayments() {
+        return payments.values();
+    }
+
+    void restorePaymentStatus(String paymentId, PaymentStatus status, String errorMessage, LocalDateTime updatedAt) {
+        Payment payment = payments.get(paymentId);
+        if (payment == null) {
+            return;
+        }
+        synchronized (payment) {
+            payment.setErrorMessage(errorMessage);
+            payment.setStatus(status);
+            payment.setUpdatedAt(updatedAt);
+        }
+    }
+
+    /**
+     * Completed amount in {@link User#BALANCE_CURRENCY}, converting other currencies at current
+     * rates. Currencies with no rate to the balance currency are left out; see
+     * {@link #getTotalPaymentsAmountByCurrency()} for the unconverted totals.
+     */
     public double getTotalPaymentsAmount() {
-        return payments.values().stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED)
-                .mapToDouble(Payment::getAmount)
-                .sum();
+        return Money.toMajor(getTotalPaymentsAmountMinor(), User.BALANCE_CURRENCY);
+    }
+
+    public long getTotalPaymentsAmountMinor() {
+        FxRateTable rates = userService.getFxRates().current();
+        long total = 0;
+        for (Currency currency : Currency.values()) {
+            long amount = statistics.getAmountMinor(PaymentStatus.COMPLETED, currency);
+            if (amount != 0 && rates.hasRate(currency, User.BALANCE_CURRENCY)) {
+                total = Money.add(total, rates.convert(amount, currency, User.BALANCE_CURRENCY));
+            }
+        }
+        return total;
+    }
+
+    /** Completed amount per currency, without conversion. */
+    public Map<Currency, Money> getTotalPaymentsAmountByCurrency() {
+        return statistics.getAmounts(PaymentStatus.COMPLETED);
     }
 
     public long getSuccessfulPaymentsCount() {
-        return payments.values().stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED)
-                .count();
+        return statistics.getCount(PaymentStatus.COMPLETED);
     }
 
     public long getFailedPaymentsCount() {
-        return payments.values().stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.FAILED)
-                .count();
+        return statistics.getCount(PaymentStatus.FAILED);
     }
 
+    /** Average completed amount in {@link User#BALANCE_CURRENCY}, over the currencies that have a rate to it. */
     public double getAveragePaymentAmount() {
-        return payments.values().stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED)
-                .mapToDouble(Payment::getAmount)
-                .average()
-                .orElse(0.0);
+        FxRateTable rates = userService.getFxRates().current();
+        long count = 0;
+        long total = 0;
+        for (Currency currency : Currency.values()) {
+            if (rates.hasRate(currency, User.BALANCE_CURRENCY)) {
+                count += statistics.getCount(PaymentStatus.COMPLETED, currency);
+                total = Money.add(total, rates.convert(statistics.getAmountMinor(PaymentStatus.COMPLETED, currency),
+                        currency, User.BALANCE_CURRENCY));
+            }
+        }
+        return count == 0 ? 0.0 : Money.toMajor(total, User.BALANCE_CURRENCY) / count;
+    }
+
+    public double getAveragePaymentAmount(Currency currency) {
+        long count = statistics.getCount(PaymentStatus.COMPLETED, currency);
+        return count == 0 ? 0.0
+                : Money.toMajor(statistics.getAmountMinor(PaymentStatus.COMPLETED, currency), currency) / count;
+    }
+
+    /**
+     * Aggregates the amounts of payments matching {@code query}, as a parallel scan over the
+     * column store when one is configured.
+     */
+    public AmountSummary summarizePayments(PaymentQuery query) {
+        if (columnStore != null) {
+            return columnStore.summarize(query);
+        }
+        return AmountSummary.of(payments.values().stream()
+                .filter(query::matches)
+                .mapToLong(Payment::getAmountMinor)
+                .summaryStatistics());
     }
 
     public int getPaymentsCount() {
         return payments.size();
     }
 
+    /**
+     * Completed sent and received totals in {@link User#BALANCE_CURRENCY}, converted at current
+     * rates; payments in a currency with no rate to it are left out.
+     */
     public Map<String, Double> getUserBalanceHistory(String userId) {
         Map<String, Double> history = new HashMap<>();
+        FxRateTable rates = userService.getFxRates().current();
 
-        double sent = getSentPayments(userId).stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED)
-                .mapToDouble(Payment::getAmount)
-                .sum();
+        long sent = getSentPayments(userId).stream()
+                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED
+                        && rates.hasRate(payment.getCurrency(), User.BALANCE_CURRENCY))
+                .mapToLong(payment -> rates.convert(payment.getAmountMinor(), payment.getCurrency(), User.BALANCE_CURRENCY))
+                .reduce(0L, Money::add);
 
-        double received = getReceivedPayments(userId).stream()
-                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED)
-                .mapToDouble(Payment::getAmount)
-                .sum();
+        long received = getReceivedPayments(userId).stream()
+                .filter(payment -> payment.getStatus() == PaymentStatus.COMPLETED
+                        && rates.hasRate(payment.getCurrency(), User.BALANCE_CURRENCY))
+                .mapToLong(payment -> rates.convert(payment.getAmountMinor(), payment.getCurrency(), User.BALANCE_CURRENCY))
+                .reduce(0L, Money::add);
 
-        history.put("sent", sent);
-        history.put("received", received);
-        history.put("net", received - sent);
+        history.put("sent", Money.toMajor(sent, User.BALANCE_CURRENCY));
+        history.put("received", Money.toMajor(received, User.BALANCE_CURRENCY));
+        history.put("net", Money.toMajor(Money.subtract(received, sent), User.BALANCE_CURRENCY));
 
         return history;
     }
-}
\ No newline at end of file
+
+    private static long toMinorBound(double amount) {
+        double scaled = amount * User.BALANCE_CURRENCY.getMinorUnitsPerMajor();
+        if (scaled >= Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        if (scaled <= Long.MIN_VALUE) {
+            return Long.MIN_VALUE;
+        }
+        return Money.toMinor(amount, User.BALANCE_CURRENCY);
+    }
+
+    private static ExecutorService newAsyncExecutor() {
+        try {
+            // Virtual threads when the runtime has them (Java 21+), a daemon thread pool otherwise
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "payment-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
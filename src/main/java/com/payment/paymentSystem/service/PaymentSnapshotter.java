@@ -0,0 +1,80 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.journal.MappedPaymentJournal;
+import com.payment.paymentSystem.journal.SnapshotStore;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically snapshots user and payment state while payments keep flowing, then drops
+ * journal segments the snapshot makes redundant. The snapshot is fuzzy: the journal position
+ * is taken first and the live maps are walked afterwards, so replaying from that position
+ * converges to the exact state. A failed scheduled snapshot is logged and kept for
+ * {@link #getLastFailure()}; the next attempt runs on schedule as usual.
+ */
+public final class PaymentSnapshotter implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(PaymentSnapshotter.class.getName());
+
+    private final MappedPaymentJournal journal;
+    private final SnapshotStore store;
+    private final UserService userService;
+    private final PaymentService paymentService;
+    private ScheduledExecutorService scheduler;
+    private volatile Exception lastFailure;
+
+    public PaymentSnapshotter(MappedPaymentJournal journal, SnapshotStore store,
+                              UserService userService, PaymentService paymentService) {
+        this.journal = journal;
+        this.store = store;
+        this.userService = userService;
+        this.paymentService = paymentService;
+    }
+
+    /** @return the journal position the new snapshot covers */
+    public synchronized long snapshot() throws IOException {
+        long position = journal.position();
+        store.write(position, userService.registeredUsers(), paymentService.storedPayments());
+        journal.deleteSegmentsBefore(position);
+        lastFailure = null;
+        return position;
+    }
+
+    /** Why the latest scheduled snapshot failed; empty once a later snapshot succeeds. */
+    public Optional<Exception> getLastFailure() {
+        return Optional.ofNullable(lastFailure);
+    }
+
+    public synchronized void start(Duration interval) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-snapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                lastFailure = e;
+                LOG.log(Level.WARNING, "Snapshot failed", e);
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running per-status payment counts and amounts, fed by payment status transitions.
+ * Amounts are summed as exact minor units, separately for each currency.
+ */
+final class PaymentStatistics implements Payment.StatusListener {
+    private static final PaymentStatus[] STATUSES = PaymentStatus.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final LongAdder[] counts = new LongAdder[STATUSES.length];
+    /** Indexed {@code status * currencies + currency}. */
+    private final LongAdder[] currencyCounts = new LongAdder[STATUSES.length * CURRENCIES.length];
+    private final LongAdder[] amounts = new LongAdder[STATUSES.length * CURRENCIES.length];
+
+    PaymentStatistics() {
+        for (int i = 0; i < STATUSES.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        for (int i = 0; i < amounts.length; i++) {
+            currencyCounts[i] = new LongAdder();
+            amounts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onStatusChanged(Payment payment, PaymentStatus previous, PaymentStatus current) {
+        if (previous != null) {
+            int slot = slot(previous, payment.getCurrency());
+            counts[previous.ordinal()].decrement();
+            currencyCounts[slot].decrement();
+            amounts[slot].add(-payment.getAmountMinor());
+        }
+        if (current != null) {
+            int slot = slot(current, payment.getCurrency());
+            counts[current.ordinal()].increment();
+            currencyCounts[slot].increment();
+            amounts[slot].add(payment.getAmountMinor());
+        }
+    }
+
+    long getCount(PaymentStatus status) {
+        return counts[status.ordinal()].sum();
+    }
+
+    long getCount(PaymentStatus status, Currency currency) {
+        return currencyCounts[slot(status, currency)].sum();
+    }
+
+    long getAmountMinor(PaymentStatus status, Currency currency) {
+        return amounts[slot(status, currency)].sum();
+    }
+
+    /** Amount per currency in {@code status}, for every currency. */
+    Map<Currency, Money> getAmounts(PaymentStatus status) {
+        Map<Currency, Money> result = new EnumMap<>(Currency.class);
+        for (Currency currency : CURRENCIES) {
+            result.put(currency, Money.ofMinor(getAmountMinor(status, currency), currency));
+        }
+        return result;
+    }
+
+    private static int slot(PaymentStatus status, Currency currency) {
+        return status.ordinal() * CURRENCIES.length + currency.ordinal();
+    }
+}
@@ -0,0 +1,160 @@
+package com.payment.paymentSystem.service;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentIdGenerator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Concurrent set of payments kept newest first, so listing it never needs a sort. Payment ids
+ * are time-ordered, so the order is a single {@code long} comparison; the string id only
+ * breaks ties between payments recorded before time-ordered ids.
+ */
+final class PaymentTimeline {
+    static final Comparator<Payment> NEWEST_FIRST = (a, b) -> {
+        int byId = Long.compare(b.getNumericId(), a.getNumericId());
+        return byId != 0 ? byId : b.getId().compareTo(a.getId());
+    };
+
+    private final ConcurrentSkipListSet<Payment> payments = new ConcurrentSkipListSet<>(NEWEST_FIRST);
+    private final PaymentClock clock;
+
+    PaymentTimeline(PaymentClock clock) {
+        this.clock = clock;
+    }
+
+    void add(Payment payment) {
+        payments.add(payment);
+    }
+
+    void remove(Payment payment) {
+        payments.remove(payment);
+    }
+
+    int size() {
+        return payments.size();
+    }
+
+    List<Payment> toList() {
+        return new ArrayList<>(payments);
+    }
+
+    Iterable<Payment> all() {
+        return payments;
+    }
+
+    /** Payments strictly older than {@code cursor} in listing order, or all of them for a {@code null} cursor. */
+    NavigableSet<Payment> after(Payment cursor) {
+        return cursor == null ? payments : payments.tailSet(cursor, false);
+    }
+
+    /** Payments created in {@code [from, to)}, newest first, as a live view. */
+    NavigableSet<Payment> between(LocalDateTime from, LocalDateTime to) {
+        Payment upper = probe(PaymentIdGenerator.lowerBound(to), clock);
+        long lowest = PaymentIdGenerator.lowerBound(from);
+        return lowest == 0 ? payments.tailSet(upper, false) : payments.subSet(upper, false, probe(lowest - 1, clock), false);
+    }
+
+    /** A payment ordered exactly at {@code numericId}. */
+    static Payment probe(long numericId, PaymentClock clock) {
+        return new Payment(numericId, clock);
+    }
+
+    /** A payment ordered like the one with {@code id} and {@code createdAt}, including legacy ids. */
+    static Payment probe(long createdAtMicros, String id, PaymentClock clock) {
+        Payment probe = new Payment(0, clock);
+        probe.setId(id);
+        probe.setCreatedAtMicros(createdAtMicros);
+        return probe;
+    }
+
+    static List<Payment> merge(PaymentTimeline first, PaymentTimeline second) {
+        List<Payment> result = new ArrayList<>((first == null ? 0 : first.size()) + (second == null ? 0 : second.size()));
+        merge(first, second, null).forEachRemaining(result::add);
+        return result;
+    }
+
+    /** Lazily merges two timelines from {@code cursor} on, dropping payments present in both. */
+    static Iterator<Payment> merge(PaymentTimeline first, PaymentTimeline second, Payment cursor) {
+        Iterator<Payment> left = first == null ? null : first.after(cursor).iterator();
+        Iterator<Payment> right = second == null ? null : second.after(cursor).iterator();
+        if (left == null) {
+            return right == null ? Collections.emptyIterator() : right;
+        }
+        if (right == null) {
+            return left;
+        }
+        return new MergingIterator(left, right);
+    }
+
+    /** Lazily walks consecutive timelines, e.g. day partitions newest first, from {@code cursor} on. */
+    static Iterator<Payment> concat(Iterable<PaymentTimeline> timelines, Payment cursor) {
+        Iterator<PaymentTimeline> remaining = timelines.iterator();
+        return new Iterator<>() {
+            private Iterator<Payment> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && remaining.hasNext()) {
+                    current = remaining.next().after(cursor).iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Payment next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    private static final class MergingIterator implements Iterator<Payment> {
+        private final Iterator<Payment> left;
+        private final Iterator<Payment> right;
+        private Payment a;
+        private Payment b;
+
+        MergingIterator(Iterator<Payment> left, Iterator<Payment> right) {
+            this.left = left;
+            this.right = right;
+            this.a = left.hasNext() ? left.next() : null;
+            this.b = right.hasNext() ? right.next() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return a != null || b != null;
+        }
+
+        @Override
+        public Payment next() {
+            if (a == null && b == null) {
+                throw new NoSuchElementException();
+            }
+            int cmp = a == null ? 1 : b == null ? -1 : NEWEST_FIRST.compare(a, b);
+            Payment result;
+            if (cmp <= 0) {
+                result = a;
+                a = left.hasNext() ? left.next() : null;
+                if (cmp == 0) {
+                    b = right.hasNext() ? right.next() : null;
+                }
+            } else {
+                result = b;
+                b = right.hasNext() ? right.next() : null;
+            }
+            return result;
+        }
+    }
+}
@@ -1,17 +1,80 @@
 package com.payment.paymentSystem.service;
 
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.entity.AccountTable;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
 import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.SettlementStep;
+import com.payment.paymentSystem.event.PaymentEvent;
+import com.payment.paymentSystem.event.PaymentEventSink;
+import com.payment.paymentSystem.fx.FxRateTable;
+import com.payment.paymentSystem.fx.FxRates;
+import com.payment.paymentSystem.journal.PaymentJournal;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 
 public class UserService {
-    private final Map<String, User> users;
-    private int userIdSequence = 1;
+    static final int LOCK_STRIPES = 1024;
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final AccountTable accounts = new AccountTable();
+    private final Map<String, User> usersByEmail;
+    private final ReentrantLock[] balanceLocks;
+    private final AtomicInteger userIdSequence = new AtomicInteger(1);
+    private final PaymentEventSink eventSink;
+    private final PaymentJournal journal;
+    private final FxRates fxRates;
+    private final PaymentClock clock;
 
     public UserService() {
-        this.users = new HashMap<>();
-        initializeTestUsers();
+        this(PaymentEventSink.disabled());
+    }
+
+    public UserService(PaymentEventSink eventSink) {
+        this(eventSink, PaymentJournal.disabled());
+    }
+
+    /**
+     * Creates a service that records every user and balance change in {@code journal}.
+     * Test users are only seeded into an empty journal; otherwise state is expected
+     * to be restored from it through {@link JournalRecovery}.
+     */
+    public UserService(PaymentEventSink eventSink, PaymentJournal journal) {
+        this(eventSink, journal, new FxRates());
+    }
+
+    /**
+     * @param fxRates rates used when a sender's wallet in the payment currency cannot cover
+     *                a transfer, which is then charged in full, converted, to the
+     *                balance-currency wallet
+     */
+    public UserService(PaymentEventSink eventSink, PaymentJournal journal, FxRates fxRates) {
+        this(eventSink, journal, fxRates, PaymentClock.system());
+    }
+
+    /**
+     * @param clock stamps users and, through {@link PaymentService}, payment ids and status
+     *              changes; pass a fixed or stepping clock for deterministic tests
+     */
+    public UserService(PaymentEventSink eventSink, PaymentJournal journal, FxRates fxRates, PaymentClock clock) {
+        this.eventSink = eventSink;
+        this.journal = journal;
+        this.fxRates = fxRates;
+        this.clock = clock;
+        this.usersByEmail = new ConcurrentHashMap<>();
+        this.balanceLocks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            balanceLocks[i] = new ReentrantLock();
+        }
+        if (!journal.hasRecords()) {
+            initializeTestUsers();
+        }
     }
 
 
@@ -20,38 +83,79 @@ public class UserService {
         validateUserInput(firstName, lastName, email, phoneNumber);
 
 
-        if (isEmailExists(email)) {
+        String emailKey = normalizeEmail(email);
+        if (usersByEmail.containsKey(emailKey)) {
             throw new IllegalArgumentException("User with this email already exists");
         }
 
         String userId = generateUserId();
         User newUser = new User(userId, firstName, lastName, email, phoneNumber);
-        users.put(userId, newUser);
+        newUser.setCreatedAt(PaymentClock.toLocalDateTime(clock.currentTimeMicros()));
+        if (usersByEmail.putIfAbsent(emailKey, newUser) != null) {
+            throw new IllegalArgumentException("User with this email already exists");
+        }
+        accounts.register(newUser);
 
-        System.out.println("User successfully registered: " + newUser.getFullName());
+        if (journal.isEnabled()) {
+            journal.userSaved(newUser);
+            journal.awaitDurable();
+        }
+        if (eventSink.isEnabled()) {
+            eventSink.publish(PaymentEvent.userRegistered(newUser));
+        }
         return newUser;
     }
 
 
     public Optional<User> findUserById(String userId) {
-        return Optional.ofNullable(users.get(userId));
+        return Optional.ofNullable(accounts.find(userId));
     }
 
 
     public Optional<User> findUserByEmail(String email) {
-        return users.values().stream()
-                .filter(user -> user.getEmail().equalsIgnoreCase(email))
-                .findFirst();
+        if (email == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(usersByEmail.get(normalizeEmail(email)));
+    }
+
+
+    public boolean updateEmail(String userId, String newEmail) {
+        if (newEmail == null || newEmail.trim().isEmpty() || !isValidEmailFormat(newEmail)) {
+            throw new IllegalArgumentException("Invalid email");
+        }
+
+        User user = accounts.find(userId);
+        if (user == null) {
+            return false;
+        }
+
+        synchronized (user) {
+            String oldKey = normalizeEmail(user.getEmail());
+            String newKey = normalizeEmail(newEmail);
+            if (!oldKey.equals(newKey) && usersByEmail.putIfAbsent(newKey, user) != null) {
+                throw new IllegalArgumentException("User with this email already exists");
+            }
+            user.setEmail(newEmail);
+            if (!oldKey.equals(newKey)) {
+                usersByEmail.remove(oldKey, user);
+            }
+            if (journal.isEnabled()) {
+                journal.userSaved(user);
+            }
+        }
+        journal.awaitDurable();
+        return true;
     }
 
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        return accounts.users().collect(Collectors.toList());
     }
 
 
     public List<User> getActiveUsers() {
-        return users.values().stream()
+        return accounts.users()
                 .filter(User::isActive)
                 .collect(Collectors.toList());
     }
@@ -62,85 +166,558 @@ public class UserService {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
+        return addBalanceMinor(userId, Money.toMinor(amount, User.BALANCE_CURRENCY));
+    }
 
-        User user = users.get(userId);
-        if (user == null) {
-            System.out.println("User not found with ID: " + userId);
+
+    public boolean addBalanceMinor(String userId, long amountMinor) {
+        boolean added = creditMinor(userId, amountMinor);
+        journal.awaitDurable();
+        return added;
+    }
+
+
+    boolean creditMinor(String userId, long amountMinor) {
+        return creditMinor(userId, User.BALANCE_CURRENCY, amountMinor);
+    }
+
+
+    boolean creditMinor(String userId, Currency currency, long amountMinor) {
+        return creditMinor(userId, currency, amountMinor, null, null);
+    }
+
+
+    /** Credits the payment's receiver and records the payment as {@code SETTLED}. */
+    boolean settleMinor(Payment payment) {
+        return creditMinor(payment.getReceiverId(), payment.getCurrency(), payment.getAmountMinor(),
+                payment, SettlementStep.SETTLED);
+    }
+
+
+    /** Credits the payment's reservation back to its sender and records the payment as {@code RELEASED}. */
+    boolean releaseMinor(Payment payment) {
+        Money reservation = payment.getReservation();
+        return creditMinor(payment.getSenderId(), reservation.getCurrency(), reservation.getMinorUnits(),
+                payment, SettlementStep.RELEASED);
+    }
+
+
+    private boolean creditMinor(String userId, Currency currency, long amountMinor, Payment payment, SettlementStep step) {
+        if (amountMinor <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        int slot = accounts.slotOf(userId);
+        if (slot < 0) {
+            if (eventSink.isEnabled()) {
+                eventSink.publish(PaymentEvent.userNotFound(userId));
+            }
             return false;
         }
 
-        user.addToBalance(amount);
-        System.out.printf("Balance added: %s - %.2f ₾ (new balance: %.2f ₾)%n",
-                user.getFullName(), amount, user.getBalance());
+        long newBalance;
+        ReentrantLock lock = lockFor(slot);
+        lock.lock();
+        try {
+            accounts.addToBalanceMinor(slot, currency, amountMinor);
+            newBalance = accounts.getBalanceMinor(slot, currency);
+            if (payment != null) {
+                payment.setSettlement(step, null);
+            }
+            if (journal.isEnabled()) {
+                journalBalances(payment, accounts.user(slot));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (eventSink.isEnabled()) {
+            eventSink.publish(PaymentEvent.balanceAdded(accounts.user(slot), currency, amountMinor, newBalance));
+        }
         return true;
     }
 
 
+    /**
+     * Takes the payment's amount from its sender, converting from the balance-currency wallet
+     * when the wallet in the payment's currency is short, and records the payment as
+     * {@code RESERVED} with what was taken.
+     *
+     * @return what was actually taken, to be credited back on release, or {@code null}
+     *         if the user is missing or neither wallet covers the amount
+     */
+    Money reserveMinor(Payment payment) {
+        String userId = payment.getSenderId();
+        Currency currency = payment.getCurrency();
+        long amountMinor = payment.getAmountMinor();
+        if (amountMinor <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        int slot = accounts.slotOf(userId);
+        if (slot < 0) {
+            return null;
+        }
+
+        FxRateTable rates = fxRates.current();
+        ReentrantLock lock = lockFor(slot);
+        lock.lock();
+        try {
+            Currency charged = chargeLocked(rates, slot, currency, amountMinor);
+            if (charged == null) {
+                return null;
+            }
+            Money reservation = charged == currency
+                    ? Money.ofMinor(amountMinor, currency)
+                    : Money.ofMinor(rates.convert(amountMinor, currency, charged), charged);
+            payment.setSettlement(SettlementStep.RESERVED, reservation);
+            if (journal.isEnabled()) {
+                journalBalances(payment, accounts.user(slot));
+            }
+            return reservation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
     public boolean deductBalance(String userId, double amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
+        return deductBalanceMinor(userId, Money.toMinor(amount, User.BALANCE_CURRENCY));
+    }
 
-        User user = users.get(userId);
-        if (user == null) {
-            System.out.println("User not found with ID: " + userId);
+
+    public boolean deductBalanceMinor(String userId, long amountMinor) {
+        boolean deducted = debitMinor(userId, amountMinor);
+        journal.awaitDurable();
+        return deducted;
+    }
+
+
+    boolean debitMinor(String userId, long amountMinor) {
+        if (amountMinor <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        int slot = accounts.slotOf(userId);
+        if (slot < 0) {
+            if (eventSink.isEnabled()) {
+                eventSink.publish(PaymentEvent.userNotFound(userId));
+            }
             return false;
         }
 
-        boolean success = user.deductFromBalance(amount);
-        if (success) {
-            System.out.printf("Balance deducted: %s - %.2f ₾ (remaining: %.2f ₾)%n",
-                    user.getFullName(), amount, user.getBalance());
-        } else {
-            System.out.printf("Insufficient balance: %s (available: %.2f ₾)%n",
-                    user.getFullName(), user.getBalance());
+        boolean success;
+        long remaining;
+        ReentrantLock lock = lockFor(slot);
+        lock.lock();
+        try {
+            success = accounts.deductFromBalanceMinor(slot, User.BALANCE_CURRENCY, amountMinor);
+            remaining = accounts.getBalanceMinor(slot, User.BALANCE_CURRENCY);
+            if (success && journal.isEnabled()) {
+                journal.balanceChanged(accounts.user(slot));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (eventSink.isEnabled()) {
+            User user = accounts.user(slot);
+            eventSink.publish(success
+                    ? PaymentEvent.balanceDeducted(user, amountMinor, remaining)
+                    : PaymentEvent.insufficientBalance(user, amountMinor, remaining));
         }
         return success;
     }
 
 
+    public boolean transferBalance(String senderId, String receiverId, double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        return transferBalanceMinor(senderId, receiverId, Money.toMinor(amount, User.BALANCE_CURRENCY));
+    }
+
+
+    /**
+     * Moves {@code amountMinor} from one account to another as a single atomic step.
+     * Both account stripes are locked in index order, so opposing transfers
+     * cannot deadlock and no other thread ever sees a half-applied transfer.
+     *
+     * @return {@code false} if either user is missing or the sender has insufficient balance
+     */
+    public boolean transferBalanceMinor(String senderId, String receiverId, long amountMinor) {
+        boolean transferred = transferMinor(senderId, receiverId, amountMinor);
+        journal.awaitDurable();
+        return transferred;
+    }
+
+
+    /** {@link #transferBalanceMinor} without waiting for the journal to reach disk. */
+    boolean transferMinor(String senderId, String receiverId, long amountMinor) {
+        return transferMinor(senderId, receiverId, User.BALANCE_CURRENCY, amountMinor, null);
+    }
+
+
+    /**
+     * Moves the payment's amount into the receiver's wallet in the payment's currency and
+     * records the payment as {@code SETTLED}. The sender pays from their own wallet in that
+     * currency, or, when it is short, from the balance-currency wallet at the current exchange rate.
+     */
+    boolean transferMinor(Payment payment) {
+        return transferMinor(payment.getSenderId(), payment.getReceiverId(), payment.getCurrency(),
+                payment.getAmountMinor(), payment);
+    }
+
+
+    private boolean transferMinor(String senderId, String receiverId, Currency currency, long amountMinor,
+                                  Payment payment) {
+        if (amountMinor <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+
+        int sender = accounts.slotOf(senderId);
+        int receiver = accounts.slotOf(receiverId);
+        if (sender < 0 || receiver < 0) {
+            return false;
+        }
+
+        int first = stripeIndex(sender);
+        int second = stripeIndex(receiver);
+        ReentrantLock firstLock = balanceLocks[Math.min(first, second)];
+        ReentrantLock secondLock = balanceLocks[Math.max(first, second)];
+
+        firstLock.lock();
+        secondLock.lock();
+        try {
+            // Throws on receiver overflow before the sender is charged; the sum itself is not needed
+            Money.add(accounts.getBalanceMinor(receiver, currency), amountMinor);
+            if (chargeLocked(fxRates.current(), sender, currency, amountMinor) == null) {
+                return false;
+            }
+            accounts.addToBalanceMinor(receiver, currency, amountMinor);
+            if (payment != null) {
+                payment.setSettlement(SettlementStep.SETTLED, null);
+            }
+            if (journal.isEnabled()) {
+                if (payment == null) {
+                    journal.balancesChanged(accounts.user(sender), accounts.user(receiver));
+                } else {
+                    journal.settlementChanged(List.of(payment), List.of(accounts.user(sender), accounts.user(receiver)));
+                }
+            }
+            return true;
+        } finally {
+            secondLock.unlock();
+            firstLock.unlock();
+        }
+    }
+
+
+    /**
+     * Settles a batch of transfers while holding the lock of every involved account once.
+     * Without netting, transfers are applied in order and each one succeeds only if its
+     * sender can cover it at that point. With netting, the whole batch is settled at once
+     * when every account's net position stays non-negative, so opposing transfers between
+     * the same accounts offset each other; otherwise it falls back to in-order settlement.
+     *
+     * @return per-transfer success flags, {@code false} for unknown users or insufficient balance
+     */
+    public boolean[] transferBatchMinor(String[] senderIds, String[] receiverIds, long[] amountsMinor, boolean netting) {
+        Currency[] currencies = new Currency[amountsMinor.length];
+        Arrays.fill(currencies, User.BALANCE_CURRENCY);
+        boolean[] results = settleBatchMinor(senderIds, receiverIds, currencies, amountsMinor, null, null, netting);
+        journal.awaitDurable();
+        return results;
+    }
+
+
+    /**
+     * Batch form of {@link #transferMinor(Payment)}. Netting works per wallet and never converts;
+     * when a wallet's net position would go negative the batch falls back to in-order settlement,
+     * where each transfer may be funded through FX.
+     *
+     * <p>A transfer that cannot be applied, e.g. because the receiver's wallet would overflow,
+     * fails on its own and leaves the transfers before and after it in place.
+     *
+     * @param payments the payment behind each transfer, recorded as {@code SETTLED} when it
+     *                 succeeds; {@code null} for plain balance transfers
+     * @param errors   receives why a transfer failed other than for insufficient balance; may be {@code null}
+     */
+    boolean[] settleBatchMinor(String[] senderIds, String[] receiverIds, Currency[] currencies, long[] amountsMinor,
+                               Payment[] payments, String[] errors, boolean netting) {
+        FxRateTable rates = fxRates.current();
+        int size = amountsMinor.length;
+        if (senderIds.length != size || receiverIds.length != size || currencies.length != size) {
+            throw new IllegalArgumentException("Batch arrays must have the same length");
+        }
+
+        boolean[] results = new boolean[size];
+        int[] senders = new int[size];
+        int[] receivers = new int[size];
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        for (int i = 0; i < size; i++) {
+            senders[i] = amountsMinor[i] > 0 ? accounts.slotOf(senderIds[i]) : -1;
+            receivers[i] = amountsMinor[i] > 0 ? accounts.slotOf(receiverIds[i]) : -1;
+            if (senders[i] >= 0 && receivers[i] >= 0) {
+                stripes.set(stripeIndex(senders[i]));
+                stripes.set(stripeIndex(receivers[i]));
+            }
+        }
+
+        for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+            balanceLocks[i].lock();
+        }
+        try {
+            if (!netting || !settleNetted(senders, receivers, currencies, amountsMinor, results)) {
+                for (int i = 0; i < size; i++) {
+                    int sender = senders[i];
+                    int receiver = receivers[i];
+                    if (sender < 0 || receiver < 0) {
+                        continue;
+                    }
+                    try {
+                        // Rejects receiver overflow before the sender is charged
+                        Money.add(accounts.getBalanceMinor(receiver, currencies[i]), amountsMinor[i]);
+                        if (chargeLocked(rates, sender, currencies[i], amountsMinor[i]) != null) {
+                            accounts.addToBalanceMinor(receiver, currencies[i], amountsMinor[i]);
+                            results[i] = true;
+                        }
+                    } catch (ArithmeticException | IllegalArgumentException e) {
+                        // Thrown before either balance changed, so only this transfer fails
+                        if (errors != null) {
+                            errors[i] = "System error: " + e.getMessage();
+                        }
+                    }
+                }
+            }
+            List<Payment> settled = new ArrayList<>();
+            for (int i = 0; payments != null && i < size; i++) {
+                if (results[i]) {
+                    payments[i].setSettlement(SettlementStep.SETTLED, null);
+                    settled.add(payments[i]);
+                }
+            }
+            if (journal.isEnabled()) {
+                if (payments == null) {
+                    journal.balancesChanged(changedUsers(senders, receivers, results));
+                } else {
+                    journal.settlementChanged(settled, changedUsers(senders, receivers, results));
+                }
+            }
+        } finally {
+            for (int i = stripes.nextSetBit(0); i >= 0; i = stripes.nextSetBit(i + 1)) {
+                balanceLocks[i].unlock();
+            }
+        }
+        return results;
+    }
+
+
+    private boolean settleNetted(int[] senders, int[] receivers, Currency[] currencies, long[] amountsMinor,
+                                 boolean[] results) {
+        Map<Integer, long[]> netPositions = new HashMap<>();
+        try {
+            for (int i = 0; i < amountsMinor.length; i++) {
+                if (senders[i] < 0 || receivers[i] < 0) {
+                    continue;
+                }
+                int wallet = currencies[i].ordinal();
+                long[] senderNet = netPositions.computeIfAbsent(senders[i], this::walletsOf);
+                senderNet[wallet] = Money.subtract(senderNet[wallet], amountsMinor[i]);
+                long[] receiverNet = netPositions.computeIfAbsent(receivers[i], this::walletsOf);
+                receiverNet[wallet] = Money.add(receiverNet[wallet], amountsMinor[i]);
+            }
+        } catch (ArithmeticException e) {
+            // A net position overflowed; in-order settlement fails just the offending transfers
+            return false;
+        }
+
+        for (long[] net : netPositions.values()) {
+            for (long wallet : net) {
+                if (wallet < 0) {
+                    return false;
+                }
+            }
+        }
+
+        netPositions.forEach((slot, net) -> {
+            for (Currency currency : CURRENCIES) {
+                accounts.setBalanceMinor(slot, currency, net[currency.ordinal()]);
+            }
+        });
+        for (int i = 0; i < amountsMinor.length; i++) {
+            results[i] = senders[i] >= 0 && receivers[i] >= 0;
+        }
+        return true;
+    }
+
+
+    private long[] walletsOf(int slot) {
+        long[] wallets = new long[CURRENCIES.length];
+        for (Currency currency : CURRENCIES) {
+            wallets[currency.ordinal()] = accounts.getBalanceMinor(slot, currency);
+        }
+        return wallets;
+    }
+
+
+    /**
+     * Charges the sender for {@code amountMinor} of {@code currency}; the caller holds the
+     * sender's stripe lock. If that wallet cannot cover the whole amount, the whole amount is
+     * converted and charged to the balance-currency wallet instead, so a payment always draws
+     * on one wallet and its reservation stays a single {@link Money}. Conversion uses the
+     * immutable {@code rates} snapshot, so it never blocks.
+     *
+     * @return the wallet that was charged, or {@code null} if nothing was charged
+     */
+    private Currency chargeLocked(FxRateTable rates, int sender, Currency currency, long amountMinor) {
+        if (accounts.deductFromBalanceMinor(sender, currency, amountMinor)) {
+            return currency;
+        }
+        if (currency == User.BALANCE_CURRENCY || !rates.hasRate(currency, User.BALANCE_CURRENCY)) {
+            return null;
+        }
+        long cost = rates.convert(amountMinor, currency, User.BALANCE_CURRENCY);
+        return accounts.deductFromBalanceMinor(sender, User.BALANCE_CURRENCY, cost) ? User.BALANCE_CURRENCY : null;
+    }
+
+
+    private void journalBalances(Payment payment, User user) {
+        if (payment == null) {
+            journal.balanceChanged(user);
+        } else {
+            journal.settlementChanged(List.of(payment), List.of(user));
+        }
+    }
+
+
+    private Collection<User> changedUsers(int[] senders, int[] receivers, boolean[] results) {
+        Set<User> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < results.length; i++) {
+            if (results[i]) {
+                changed.add(accounts.user(senders[i]));
+                changed.add(accounts.user(receivers[i]));
+            }
+        }
+        return changed;
+    }
+
+
+    public PaymentEventSink getEventSink() {
+        return eventSink;
+    }
+
+
+    public PaymentJournal getJournal() {
+        return journal;
+    }
+
+    public PaymentClock getClock() {
+        return clock;
+    }
+
+
+    public FxRates getFxRates() {
+        return fxRates;
+    }
+
+
+    /**
+     * Installs a user read back from the journal. A user that is already present keeps
+     * its current balance, since balances are restored from their own records.
+     */
+    void restoreUser(User user) {
+        User existing = accounts.find(user.getId());
+        if (existing != null) {
+            for (Currency currency : CURRENCIES) {
+                user.setBalanceMinor(currency, existing.getBalanceMinor(currency));
+            }
+            usersByEmail.remove(normalizeEmail(existing.getEmail()), existing);
+        }
+        accounts.register(user);
+        usersByEmail.put(normalizeEmail(user.getEmail()), user);
+        if (user.getId().startsWith("USER_")) {
+            try {
+                int next = Integer.parseInt(user.getId().substring("USER_".length())) + 1;
+                userIdSequence.accumulateAndGet(next, Math::max);
+            } catch (NumberFormatException ignored) {
+                // ids outside the generated sequence cannot collide with it
+            }
+        }
+    }
+
+
+    /** The user's account slot, or {@code -1} for an unknown user. */
+    int accountSlot(String userId) {
+        return accounts.slotOf(userId);
+    }
+
+
+    Collection<User> registeredUsers() {
+        return accounts.users().collect(Collectors.toList());
+    }
+
+
+    void restoreBalance(String userId, Currency currency, long balanceMinor) {
+        int slot = accounts.slotOf(userId);
+        if (slot >= 0) {
+            accounts.setBalanceMinor(slot, currency, balanceMinor);
+        }
+    }
+
+
     public int getUserCount() {
-        return users.size();
+        return accounts.size();
     }
 
 
     public long getActiveUserCount() {
-        return users.values().stream()
+        return accounts.users()
                 .filter(User::isActive)
                 .count();
     }
 
 
     public long getInactiveUserCount() {
-        return users.values().stream()
+        return accounts.users()
                 .filter(user -> !user.isActive())
                 .count();
     }
 
 
     public double getAverageBalance() {
-        return users.values().stream()
-                .filter(User::isActive)
-                .mapToDouble(User::getBalance)
+        return accounts.activeBalancesMinor(User.BALANCE_CURRENCY)
                 .average()
-                .orElse(0.0);
+                .orElse(0.0) / User.BALANCE_CURRENCY.getMinorUnitsPerMajor();
     }
 
 
     public double getMaxBalance() {
-        return users.values().stream()
-                .filter(User::isActive)
-                .mapToDouble(User::getBalance)
+        return Money.toMajor(accounts.activeBalancesMinor(User.BALANCE_CURRENCY)
                 .max()
-                .orElse(0.0);
+                .orElse(0L), User.BALANCE_CURRENCY);
     }
 
 
     public double getTotalBalance() {
-        return users.values().stream()
-                .filter(User::isActive)
-                .mapToDouble(User::getBalance)
-                .sum();
+        return Money.toMajor(getTotalBalanceMinor(), User.BALANCE_CURRENCY);
+    }
+
+
+    public long getTotalBalanceMinor() {
+        return accounts.activeBalancesMinor(User.BALANCE_CURRENCY)
+                .reduce(0L, Money::add);
+    }
+
+
+    /** Sum of active users' wallets per currency, without conversion. */
+    public Map<Currency, Money> getTotalBalanceByCurrency() {
+        Map<Currency, Money> result = new EnumMap<>(Currency.class);
+        for (Currency currency : CURRENCIES) {
+            result.put(currency, Money.ofMinor(accounts.activeBalancesMinor(currency).reduce(0L, Money::add), currency));
+        }
+        return result;
     }
 
 
@@ -163,30 +740,49 @@ public class UserService {
         return email.contains("@") && email.contains(".");
     }
 
-    private boolean isEmailExists(String email) {
-        return users.values().stream()
-                .anyMatch(user -> user.getEmail().equalsIgnoreCase(email));
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void addUser(User user) {
+        accounts.register(user);
+        usersByEmail.put(normalizeEmail(user.getEmail()), user);
     }
 
     private String generateUserId() {
-        return "USER_" + (userIdSequence++);
+        return "USER_" + userIdSequence.getAndIncrement();
+    }
+
+    private ReentrantLock lockFor(int slot) {
+        return balanceLocks[stripeIndex(slot)];
+    }
+
+    /** Slots are dense, so consecutive accounts land on consecutive stripes. */
+    private static int stripeIndex(int slot) {
+        return slot & (LOCK_STRIPES - 1);
     }
 
     private void initializeTestUsers() {
 
         User user1 = new User("USER_1", "Giorgi", "", "giorgi@example.com", "555123456");
         user1.setBalance(1000.0);
-        users.put("USER_1", user1);
+        addUser(user1);
 
         User user2 = new User("USER_2", "Nino", "", "nino@example.com", "555654321");
         user2.setBalance(500.0);
-        users.put("USER_2", user2);
+        addUser(user2);
 
         User user3 = new User("USER_3", "Davit", "", "davit@example.com", "555789012");
         user3.setBalance(750.0);
-        users.put("USER_3", user3);
-
-        userIdSequence = 4;
+        addUser(user3);
+
+        userIdSequence.set(4);
+        if (journal.isEnabled()) {
+            journal.userSaved(user1);
+            journal.userSaved(user2);
+            journal.userSaved(user3);
+            journal.awaitDurable();
+        }
         System.out.println("Test users initialized");
     }
 }
@@ -0,0 +1,115 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.clock.PaymentClock;
+import com.payment.paymentSystem.codec.BinaryFormat;
+import com.payment.paymentSystem.codec.PaymentCodec;
+import com.payment.paymentSystem.codec.PaymentRequestCodec;
+import com.payment.paymentSystem.codec.UserCodec;
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import com.payment.paymentSystem.enums.SettlementStep;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class BinaryCodecTests {
+
+	@Test
+	void testPaymentRoundTrip() {
+		Payment payment = new Payment(new PaymentRequest("USER_1", "USER_2", 19.99,
+				Currency.EUR, PaymentMethod.DEBIT_CARD, "Café ☕ 𝄞", "REF-1"));
+		payment.setSettlement(SettlementStep.RESERVED, Money.ofMinor(5_400, Currency.GEL));
+		payment.markAsFailed("Insufficient balance");
+
+		ByteBuffer buffer = ByteBuffer.allocateDirect(PaymentCodec.encodedSize(payment));
+		PaymentCodec.encode(payment, buffer);
+		assertEquals(0, buffer.remaining());
+		buffer.flip();
+		Payment decoded = PaymentCodec.decode(buffer, PaymentClock.system());
+
+		assertEquals(payment.getId(), decoded.getId());
+		assertEquals(payment.getSenderId(), decoded.getSenderId());
+		assertEquals(payment.getReceiverId(), decoded.getReceiverId());
+		assertEquals(1999, decoded.getAmountMinor());
+		assertEquals(Currency.EUR, decoded.getCurrency());
+		assertEquals(PaymentMethod.DEBIT_CARD, decoded.getPaymentMethod());
+		assertEquals(payment.getStatus(), decoded.getStatus());
+		assertEquals("Café ☕ 𝄞", decoded.getDescription());
+		assertEquals("REF-1", decoded.getReference());
+		assertEquals(payment.getCreatedAt(), decoded.getCreatedAt());
+		assertEquals(payment.getUpdatedAt(), decoded.getUpdatedAt());
+		assertEquals("Insufficient balance", decoded.getErrorMessage());
+		assertEquals(SettlementStep.RESERVED, decoded.getSettlement());
+		assertEquals(Money.ofMinor(5_400, Currency.GEL), decoded.getReservation());
+	}
+
+	@Test
+	void testDecodedPaymentStampsTransitionsWithTheGivenClock() {
+		Payment payment = new Payment("USER_1", "USER_2", 1.0, "test");
+		ByteBuffer buffer = ByteBuffer.allocate(PaymentCodec.encodedSize(payment));
+		PaymentCodec.encode(payment, buffer);
+		LocalDateTime noon = LocalDateTime.of(2025, 3, 1, 12, 0);
+		long micros = PaymentClock.toMicros(noon);
+
+		Payment decoded = PaymentCodec.decode(buffer.flip(), () -> micros);
+		decoded.markAsCompleted();
+
+		assertEquals(noon, decoded.getUpdatedAt());
+		assertEquals(payment.getCreatedAt(), decoded.getCreatedAt());
+	}
+
+	@Test
+	void testUserAndRequestRoundTrip() {
+		User user = new User("USER_7", "Nino", "Beridze", "nino@example.com", "555654321");
+		user.setBalanceMinor(123_456);
+		user.setActive(false);
+		ByteBuffer buffer = ByteBuffer.allocate(UserCodec.encodedSize(user));
+		UserCodec.encode(user, buffer);
+		User decodedUser = UserCodec.decode(buffer.flip());
+		assertEquals(user.getId(), decodedUser.getId());
+		assertEquals(user.getEmail(), decodedUser.getEmail());
+		assertEquals(123_456, decodedUser.getBalanceMinor());
+		assertFalse(decodedUser.isActive());
+		assertEquals(user.getCreatedAt(), decodedUser.getCreatedAt());
+
+		PaymentRequest request = PaymentRequest.builder()
+				.setSenderUserId("USER_1")
+				.setReceiverUserId("USER_2")
+				.setAmountMinor(5_000)
+				.setCurrency(Currency.USD)
+				.setDescription("rent")
+				.setReferenceNumber("R-42")
+				.build();
+		buffer = ByteBuffer.allocate(PaymentRequestCodec.encodedSize(request));
+		PaymentRequestCodec.encode(request, buffer);
+		assertEquals(request, PaymentRequestCodec.decode(buffer.flip()));
+	}
+
+	@Test
+	void testStringSizeMatchesWhatIsWritten() {
+		for (String value : new String[] {"", "abc", "Café ☕ 𝄞", "lone \uD834 high", "lone \uDD1E low", "\uD834"}) {
+			ByteBuffer buffer = ByteBuffer.allocate(64);
+			BinaryFormat.putString(buffer, value);
+			assertEquals(BinaryFormat.stringSize(value), buffer.position(), value);
+			assertEquals(value.getBytes(StandardCharsets.UTF_8).length + 4, buffer.position(), value);
+		}
+	}
+
+	@Test
+	void testUnknownVersionIsRejected() {
+		Payment payment = new Payment("USER_1", "USER_2", 1.0, "test");
+		ByteBuffer buffer = ByteBuffer.allocate(PaymentCodec.encodedSize(payment));
+		PaymentCodec.encode(payment, buffer);
+		buffer.put(0, (byte) 99);
+		assertThrows(IllegalArgumentException.class, () -> PaymentCodec.decode(buffer.flip(), PaymentClock.system()));
+	}
+}
@@ -0,0 +1,153 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.event.PaymentEventSink;
+import com.payment.paymentSystem.fx.FxRateTable;
+import com.payment.paymentSystem.fx.FxRates;
+import com.payment.paymentSystem.journal.MappedPaymentJournal;
+import com.payment.paymentSystem.journal.PaymentJournal;
+import com.payment.paymentSystem.service.JournalRecovery;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CurrencyWalletTests {
+
+	@TempDir
+	Path journalDir;
+
+	private FxRates rates;
+	private UserService userService;
+	private PaymentService paymentService;
+
+	@BeforeEach
+	void setUp() {
+		rates = new FxRates();
+		rates.setRate(Currency.USD, Currency.GEL, new BigDecimal("2.70"));
+		userService = new UserService(PaymentEventSink.disabled(), PaymentJournal.disabled(), rates);
+		paymentService = new PaymentService(userService);
+	}
+
+	@Test
+	void testRateTableSnapshotsAreImmutable() {
+		FxRateTable before = rates.current();
+		assertEquals(270, before.convert(100, Currency.USD, Currency.GEL));
+		assertEquals(37, before.convert(100, Currency.GEL, Currency.USD));
+		assertThrows(IllegalStateException.class, () -> before.convert(100, Currency.EUR, Currency.GEL));
+
+		rates.setRate(Currency.USD, Currency.GEL, new BigDecimal("2.75"));
+		assertEquals(270, before.convert(100, Currency.USD, Currency.GEL));
+		assertEquals(275, rates.convert(100, Currency.USD, Currency.GEL));
+		assertEquals(8_250_000_000_000_000_000L, rates.convert(3_000_000_000_000_000_000L, Currency.USD, Currency.GEL));
+		assertThrows(ArithmeticException.class, () -> rates.convert(Long.MAX_VALUE, Currency.USD, Currency.GEL));
+	}
+
+	@Test
+	void testForeignPaymentsUseWalletsAndFallBackToConversion() {
+		Payment funded = paymentService.processPayment(usd("USER_1", "USER_2", 10.0));
+		assertTrue(funded.isSuccessful());
+		User sender = userService.findUserById("USER_1").orElseThrow();
+		User receiver = userService.findUserById("USER_2").orElseThrow();
+		assertEquals(973.0, sender.getBalance(), 0.0001);
+		assertEquals(10.0, receiver.getBalance(Currency.USD), 0.0001);
+		assertEquals(500.0, receiver.getBalance(), 0.0001);
+
+		assertTrue(paymentService.processPayment(usd("USER_2", "USER_3", 4.0)).isSuccessful());
+		assertEquals(6.0, receiver.getBalance(Currency.USD), 0.0001);
+		assertEquals(500.0, receiver.getBalance(), 0.0001);
+
+		Payment noRate = paymentService.processPayment(new PaymentRequest("USER_1", "USER_3", 1.0,
+				Currency.EUR, PaymentMethod.BANK_TRANSFER, "no rate", null));
+		assertEquals(PaymentStatus.FAILED, noRate.getStatus());
+
+		assertTrue(paymentService.processPayment(new PaymentRequest("USER_1", "USER_3", 5.0, "lari")).isSuccessful());
+		assertEquals(Money.of(14.0, Currency.USD), paymentService.getTotalPaymentsAmountByCurrency().get(Currency.USD));
+		assertEquals(Money.of(5.0, Currency.GEL), paymentService.getTotalPaymentsAmountByCurrency().get(Currency.GEL));
+		assertEquals(5.0 + 14.0 * 2.70, paymentService.getTotalPaymentsAmount(), 0.0001);
+		assertEquals(7.0, paymentService.getAveragePaymentAmount(Currency.USD), 0.0001);
+	}
+
+	@Test
+	void testShortWalletIsLeftAloneAndTheWholeAmountIsConverted() {
+		User sender = userService.findUserById("USER_1").orElseThrow();
+		sender.setBalanceMinor(Currency.USD, 400);
+
+		assertTrue(paymentService.processPayment(usd("USER_1", "USER_2", 10.0)).isSuccessful());
+		assertEquals(400, sender.getBalanceMinor(Currency.USD));
+		assertEquals(973.0, sender.getBalance(), 0.0001);
+		assertEquals(10.0, userService.findUserById("USER_2").get().getBalance(Currency.USD), 0.0001);
+	}
+
+	@Test
+	void testStatisticsSkipCurrenciesWithoutRates() {
+		UserService noRates = new UserService();
+		PaymentService service = new PaymentService(noRates);
+		noRates.findUserById("USER_1").orElseThrow().setBalanceMinor(Currency.USD, 10_000);
+		assertTrue(service.processPayment(usd("USER_1", "USER_2", 30.0)).isSuccessful());
+		assertTrue(service.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "lari")).isSuccessful());
+		assertTrue(service.processPayment(new PaymentRequest("USER_2", "USER_1", 4.0, "lari")).isSuccessful());
+
+		assertEquals(14.0, service.getTotalPaymentsAmount(), 0.0001);
+		assertEquals(7.0, service.getAveragePaymentAmount(), 0.0001);
+		assertEquals(Money.of(30.0, Currency.USD), service.getTotalPaymentsAmountByCurrency().get(Currency.USD));
+		assertEquals(10.0, service.getUserBalanceHistory("USER_1").get("sent"), 0.0001);
+		assertEquals(4.0, service.getUserBalanceHistory("USER_1").get("received"), 0.0001);
+	}
+
+	@Test
+	void testCancelledAsyncPaymentRefundsTheChargedWallet() {
+		Queue<Runnable> stages = new ArrayDeque<>();
+		PaymentService stagedService = new PaymentService(userService, stages::add);
+
+		CompletableFuture<Payment> future = stagedService.processPaymentAsync(usd("USER_1", "USER_2", 20.0));
+		stages.poll().run();
+		stages.poll().run();
+		assertEquals(946.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+
+		rates.setRate(Currency.USD, Currency.GEL, new BigDecimal("3.00"));
+		Payment pending = stagedService.getPaymentsByStatus(PaymentStatus.PENDING).get(0);
+		assertTrue(stagedService.cancelPayment(pending.getId(), "USER_1"));
+		stages.poll().run();
+
+		assertTrue(future.join().isCancelled());
+		assertEquals(1000.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+		assertEquals(0, userService.findUserById("USER_1").get().getBalanceMinor(Currency.USD));
+	}
+
+	@Test
+	void testWalletsAreRecoveredFromJournal() throws IOException {
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService journaled = new UserService(PaymentEventSink.disabled(), journal, rates);
+			new PaymentService(journaled).processPayment(usd("USER_1", "USER_2", 10.0));
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService recovered = new UserService(PaymentEventSink.disabled(), journal, rates);
+			JournalRecovery.recover(journal, recovered, new PaymentService(recovered));
+			assertEquals(973.0, recovered.findUserById("USER_1").get().getBalance(), 0.0001);
+			assertEquals(10.0, recovered.findUserById("USER_2").get().getBalance(Currency.USD), 0.0001);
+		}
+	}
+
+	private static PaymentRequest usd(String senderId, String receiverId, double amount) {
+		return new PaymentRequest(senderId, receiverId, amount, Currency.USD, PaymentMethod.BANK_TRANSFER, "usd", null);
+	}
+}
@@ -0,0 +1,54 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.entity.Money;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class MoneyTests {
+
+	@Test
+	void testMinorUnitConversion() {
+		assertEquals(1999, Money.toMinor(19.99, Currency.GEL));
+		assertEquals(10, Money.toMinor(0.1, Currency.USD));
+		assertEquals(19.99, Money.toMajor(1999, Currency.GEL));
+		assertEquals("-12.05 ₾", Money.ofMinor(-1205, Currency.GEL).toString());
+		assertEquals(Money.of(0.3, Currency.EUR), Money.of(0.1, Currency.EUR).plus(Money.of(0.2, Currency.EUR)));
+	}
+
+	@Test
+	void testArithmeticIsOverflowChecked() {
+		assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+		assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+		assertThrows(ArithmeticException.class, () -> Money.toMinor(1e300, Currency.GEL));
+		assertThrows(IllegalArgumentException.class,
+				() -> Money.of(1, Currency.GEL).plus(Money.of(1, Currency.USD)));
+
+		User user = new User("U", "Big", "Balance", "big@example.com", "555");
+		user.setBalanceMinor(Long.MAX_VALUE);
+		assertThrows(ArithmeticException.class, () -> user.addToBalanceMinor(1));
+		assertEquals(Long.MAX_VALUE, user.getBalanceMinor());
+	}
+
+	@Test
+	void testRepeatedSmallTransfersHaveNoRoundingDrift() {
+		UserService userService = new UserService();
+		PaymentService paymentService = new PaymentService(userService);
+
+		for (int i = 0; i < 1000; i++) {
+			paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 0.1, "drift"));
+		}
+
+		assertEquals(900.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(600.0, userService.findUserById("USER_2").get().getBalance());
+		assertEquals(100.0, paymentService.getTotalPaymentsAmount());
+		assertEquals(10_000, paymentService.getTotalPaymentsAmountMinor());
+		assertEquals(2250.0, userService.getTotalBalance());
+	}
+}
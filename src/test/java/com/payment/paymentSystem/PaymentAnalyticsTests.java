@@ -0,0 +1,116 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.analytics.AmountSummary;
+import com.payment.paymentSystem.analytics.PaymentColumnStore;
+import com.payment.paymentSystem.analytics.PaymentQuery;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentMethod;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PaymentAnalyticsTests {
+
+	private PaymentService columnarService;
+	private PaymentService plainService;
+
+	@BeforeEach
+	void setUp() {
+		columnarService = new PaymentService(new UserService(), ForkJoinPool.commonPool(), new PaymentColumnStore());
+		plainService = new PaymentService(new UserService());
+		for (PaymentService service : List.of(columnarService, plainService)) {
+			for (int i = 1; i <= 300; i++) {
+				Currency currency = i % 3 == 0 ? Currency.USD : Currency.GEL;
+				Payment payment = service.processPayment(new PaymentRequest("USER_1", "USER_2", i / 10.0,
+						currency, PaymentMethod.BANK_TRANSFER, "analytics", null));
+				if (i % 7 == 0) {
+					payment.setStatus(PaymentStatus.CANCELLED);
+				}
+			}
+			service.processPayment(new PaymentRequest("USER_2", "USER_3", 100_000.0, "fails"));
+		}
+	}
+
+	@Test
+	void testColumnarSummariesMatchObjectScan() {
+		List<PaymentQuery> queries = List.of(
+				PaymentQuery.all(),
+				PaymentQuery.all().withStatus(PaymentStatus.COMPLETED),
+				PaymentQuery.all().withStatus(PaymentStatus.FAILED),
+				PaymentQuery.all().withCurrency(Currency.USD).withAmountBetween(500, 2_000),
+				PaymentQuery.all().withCreatedBetween(LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1)),
+				PaymentQuery.all().withCreatedBetween(null, LocalDateTime.now().minusDays(1)));
+
+		for (PaymentQuery query : queries) {
+			AmountSummary columnar = columnarService.summarizePayments(query);
+			AmountSummary plain = plainService.summarizePayments(query);
+			assertEquals(plain.getCount(), columnar.getCount());
+			assertEquals(plain.getSumMinor(), columnar.getSumMinor());
+			assertEquals(plain.getMinMinor(), columnar.getMinMinor());
+			assertEquals(plain.getMaxMinor(), columnar.getMaxMinor());
+		}
+
+		AmountSummary cancelled = columnarService.summarizePayments(PaymentQuery.all().withStatus(PaymentStatus.CANCELLED));
+		assertEquals(42, cancelled.getCount());
+		assertEquals(0, columnarService.summarizePayments(
+				PaymentQuery.all().withCreatedBetween(null, LocalDateTime.now().minusDays(1))).getCount());
+
+		// A status change that lands after eviction must not bring the row back
+		PaymentColumnStore store = new PaymentColumnStore();
+		int row = store.append(new Payment("USER_1", "USER_2", 1.0, "evicted"));
+		store.evictCreatedBefore(Long.MAX_VALUE);
+		store.updateStatus(row, PaymentStatus.COMPLETED);
+		assertEquals(0, store.summarize(PaymentQuery.all()).getCount());
+	}
+
+	@Test
+	void testEvictionReleasesFullyEvictedChunks() {
+		PaymentColumnStore store = new PaymentColumnStore();
+		Payment old = new Payment("USER_1", "USER_2", 1.0, "old");
+		Payment recent = new Payment("USER_1", "USER_2", 2.0, "recent");
+		recent.setCreatedAt(old.getCreatedAt().plusDays(1));
+		int chunkSize = 1 << 16;
+		for (int i = 0; i < 2 * chunkSize; i++) {
+			store.append(old);
+		}
+		int lastRow = 0;
+		for (int i = 0; i < 10; i++) {
+			lastRow = store.append(recent);
+		}
+
+		store.evictCreatedBefore(recent.getCreatedAtMicros());
+
+		// Both chunks of old rows are gone; the partly filled one with the recent rows stays
+		assertEquals(10, store.size());
+		assertEquals(10, store.summarize(PaymentQuery.all()).getCount());
+		assertEquals(200, store.summarize(PaymentQuery.all()).getMinMinor());
+		store.updateStatus(0, PaymentStatus.FAILED);
+		store.updateStatus(lastRow, PaymentStatus.FAILED);
+		assertEquals(1, store.summarize(PaymentQuery.all().withStatus(PaymentStatus.FAILED)).getCount());
+		store.append(recent);
+		assertEquals(11, store.summarize(PaymentQuery.all()).getCount());
+	}
+
+	@Test
+	void testAmountRangeMatchesAcrossStores() {
+		List<Payment> columnar = columnarService.getPaymentsByAmountRange(5.0, 10.0);
+		List<Payment> plain = plainService.getPaymentsByAmountRange(5.0, 10.0);
+		assertEquals(51, columnar.size());
+		assertEquals(plain.size(), columnar.size());
+		assertTrue(columnar.stream().allMatch(payment -> payment.getAmount() >= 5.0 && payment.getAmount() <= 10.0));
+		for (int i = 1; i < columnar.size(); i++) {
+			assertFalse(columnar.get(i).getCreatedAt().isAfter(columnar.get(i - 1).getCreatedAt()));
+		}
+	}
+}
@@ -0,0 +1,415 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.entity.AccountTable;
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentIdGenerator;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.Currency;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.service.PartitionedPaymentEngine;
+import com.payment.paymentSystem.service.PaymentIngress;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PaymentConcurrencyTests {
+
+	private static final int ACCOUNTS = 64;
+	private static final int THREADS = 8;
+	private static final int TRANSFERS_PER_THREAD = 5_000;
+
+	private UserService userService;
+	private PaymentService paymentService;
+	private List<String> accountIds;
+
+	@BeforeEach
+	void setUp() {
+		userService = new UserService();
+		paymentService = new PaymentService(userService);
+		accountIds = new ArrayList<>();
+		for (int i = 0; i < ACCOUNTS; i++) {
+			User user = userService.registerUser("Load", "Test" + i, "load" + i + "@example.com", "555" + i);
+			userService.addBalance(user.getId(), 1000.0);
+			accountIds.add(user.getId());
+		}
+	}
+
+	@Test
+	void testConcurrentTransfersPreserveTotalBalance() throws Exception {
+		double totalBefore = userService.getTotalBalance();
+		AtomicLong completed = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			executor.submit(() -> {
+				start.await();
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					String sender = accountIds.get(random.nextInt(ACCOUNTS));
+					String receiver = accountIds.get(random.nextInt(ACCOUNTS));
+					PaymentRequest request = new PaymentRequest(sender, receiver, 1 + random.nextInt(50), "load");
+					Payment payment = paymentService.processPayment(request);
+					if (payment.isSuccessful()) {
+						completed.incrementAndGet();
+					} else {
+						failed.incrementAndGet();
+					}
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(2, TimeUnit.MINUTES));
+
+		assertEquals(THREADS * TRANSFERS_PER_THREAD, completed.get() + failed.get());
+		assertEquals(THREADS * TRANSFERS_PER_THREAD, paymentService.getPaymentsCount());
+		assertEquals(totalBefore, userService.getTotalBalance(), 0.0001);
+		assertTrue(userService.getAllUsers().stream().allMatch(user -> user.getBalance() >= 0));
+	}
+
+	@Test
+	void testOpposingTransfersDoNotDeadlock() throws Exception {
+		String first = accountIds.get(0);
+		String second = accountIds.get(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		executor.submit(() -> {
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				userService.transferBalance(first, second, 1.0);
+			}
+		});
+		executor.submit(() -> {
+			for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+				userService.transferBalance(second, first, 1.0);
+			}
+		});
+
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(2000.0, userService.findUserById(first).get().getBalance()
+				+ userService.findUserById(second).get().getBalance(), 0.0001);
+	}
+
+	@Test
+	void testConcurrentRegistrationWithSameEmail() throws Exception {
+		AtomicLong registered = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			int index = t;
+			executor.submit(() -> {
+				start.await();
+				try {
+					userService.registerUser("Same", "Email" + index, index % 2 == 0 ? "same@example.com" : "SAME@example.com", "555");
+					registered.incrementAndGet();
+				} catch (IllegalArgumentException expected) {
+					// another thread registered this email first
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(1, registered.get());
+		assertTrue(userService.findUserByEmail("same@example.com").isPresent());
+	}
+
+	@Test
+	void testPaymentIdsAreUniqueAndIncreaseUnderContention() throws Exception {
+		// A frozen clock forces every id through the sequence and its carry into the timestamp
+		PaymentIdGenerator generator = new PaymentIdGenerator(5, () -> 1_800_000_000_000_000L);
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			executor.submit(() -> {
+				start.await();
+				long previous = -1;
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					long id = generator.nextId();
+					assertTrue(id > previous);
+					assertTrue(ids.add(id));
+					previous = id;
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(THREADS * TRANSFERS_PER_THREAD, ids.size());
+
+		Payment older = new Payment();
+		Payment newer = new Payment();
+		assertTrue(older.getId().compareTo(newer.getId()) < 0);
+		assertTrue(older.getNumericId() < newer.getNumericId());
+		assertFalse(older.getCreatedAt().isAfter(newer.getCreatedAt()));
+		assertEquals(newer.getNumericId(), PaymentIdGenerator.parse(newer.getId()));
+		// Ids carry UTC time whatever the system zone, so a DST change cannot turn them back
+		long utcMicros = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+		assertTrue(Math.abs(utcMicros - PaymentIdGenerator.timestampMicrosOf(newer.getNumericId())) < 60_000_000L);
+	}
+
+	@Test
+	void testAccountTableHandsOutDenseSlotsAcrossChunks() throws Exception {
+		AccountTable accounts = new AccountTable();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+					User user = new User("ACC_" + thread + "_" + i, "Load", "Test", "acc@example.com", "555");
+					user.setBalanceMinor(i);
+					accounts.register(user);
+				}
+				return null;
+			});
+		}
+
+		start.countDown();
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		int total = THREADS * TRANSFERS_PER_THREAD;
+		assertEquals(total, accounts.size());
+		assertEquals(total, accounts.users().count());
+		assertEquals(THREADS * (long) TRANSFERS_PER_THREAD * (TRANSFERS_PER_THREAD - 1) / 2,
+				accounts.activeBalancesMinor(Currency.GEL).sum());
+
+		User last = accounts.find("ACC_3_4999");
+		int slot = last.getAccountSlot();
+		assertTrue(slot >= 0 && slot < total);
+		assertSame(last, accounts.user(slot));
+		accounts.addToBalanceMinor(slot, Currency.USD, 250);
+		assertEquals(250, last.getBalanceMinor(Currency.USD));
+		last.setActive(false);
+		assertFalse(accounts.isActive(slot));
+
+		User replacement = new User("ACC_3_4999", "Load", "Again", "acc@example.com", "555");
+		assertEquals(slot, accounts.register(replacement));
+		assertEquals(total, accounts.size());
+		assertEquals(0, accounts.getBalanceMinor(slot, Currency.USD));
+
+		// Registrations racing on a new id allocate one slot between them, so slots stay dense
+		ExecutorService racers = Executors.newFixedThreadPool(2);
+		for (int i = 0; i < 200; i++) {
+			String id = "DUP_" + i;
+			CountDownLatch go = new CountDownLatch(1);
+			List<CompletableFuture<Void>> attempts = new ArrayList<>();
+			for (int r = 0; r < 2; r++) {
+				attempts.add(CompletableFuture.runAsync(() -> {
+					try {
+						go.await();
+						accounts.register(new User(id, "Race", "Test", "race@example.com", "555"));
+					} catch (IllegalStateException | InterruptedException e) {
+						// the losing registration
+					}
+				}, racers));
+			}
+			go.countDown();
+			attempts.forEach(CompletableFuture::join);
+		}
+		racers.shutdown();
+		User next = new User("ACC_NEXT", "Load", "Test", "acc@example.com", "555");
+		int nextSlot = accounts.register(next);
+		assertEquals(accounts.size() - 1, nextSlot);
+	}
+
+	@Test
+	void testPartitionedEngineSettlesEveryTransferOnce() throws Exception {
+		for (int partitions = 1; partitions <= 4; partitions *= 2) {
+			UserService partitionedUsers = new UserService();
+			List<String> ids = new ArrayList<>();
+			for (int i = 0; i < ACCOUNTS; i++) {
+				User user = partitionedUsers.registerUser("Engine", "Test" + i, "engine" + i + "@example.com", "555" + i);
+				partitionedUsers.addBalance(user.getId(), 1000.0);
+				ids.add(user.getId());
+			}
+			double totalBefore = partitionedUsers.getTotalBalance();
+
+			try (PartitionedPaymentEngine engine = new PartitionedPaymentEngine(partitions)) {
+				PaymentService service = new PaymentService(partitionedUsers, engine);
+				List<CompletableFuture<Payment>> futures = new ArrayList<>();
+				CountDownLatch start = new CountDownLatch(1);
+				ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+				for (int t = 0; t < THREADS; t++) {
+					clients.submit(() -> {
+						start.await();
+						ThreadLocalRandom random = ThreadLocalRandom.current();
+						List<CompletableFuture<Payment>> submitted = new ArrayList<>();
+						for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+							String sender = ids.get(random.nextInt(ACCOUNTS));
+							String receiver = ids.get(random.nextInt(ACCOUNTS));
+							submitted.add(service.processPaymentAsync(new PaymentRequest(sender, receiver, 1 + random.nextInt(50), "engine")));
+						}
+						synchronized (futures) {
+							futures.addAll(submitted);
+						}
+						return null;
+					});
+				}
+
+				start.countDown();
+				clients.shutdown();
+				assertTrue(clients.awaitTermination(2, TimeUnit.MINUTES));
+				CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(2, TimeUnit.MINUTES);
+
+				assertEquals(THREADS * TRANSFERS_PER_THREAD, futures.size());
+				assertTrue(futures.stream().allMatch(future -> future.join().isSuccessful() || future.join().isFailed()));
+				assertEquals(THREADS * TRANSFERS_PER_THREAD, service.getPaymentsCount());
+				assertEquals(0, service.getPaymentsByStatus(PaymentStatus.PENDING).size());
+				assertEquals(totalBefore, partitionedUsers.getTotalBalance(), 0.0001);
+				assertTrue(partitionedUsers.getAllUsers().stream().allMatch(user -> user.getBalance() >= 0));
+			}
+		}
+	}
+
+	@Test
+	void testPartitionedEngineRefundsFailedCreditsAndFailsPaymentsAfterClose() throws Exception {
+		UserService partitionedUsers = new UserService();
+		User sender = partitionedUsers.registerUser("Engine", "Sender", "engine.sender@example.com", "555100");
+		User receiver = partitionedUsers.registerUser("Engine", "Receiver", "engine.receiver@example.com", "555101");
+		partitionedUsers.addBalance(sender.getId(), 100.0);
+		partitionedUsers.addBalanceMinor(receiver.getId(), Long.MAX_VALUE - 1_000);
+
+		PaymentService service;
+		try (PartitionedPaymentEngine engine = new PartitionedPaymentEngine(2)) {
+			service = new PaymentService(partitionedUsers, engine);
+			// The credit overflows on the receiver's partition; the refund runs on the sender's
+			Payment overflow = service.processPaymentAsync(new PaymentRequest(sender.getId(), receiver.getId(), 50.0, "overflow"))
+					.get(1, TimeUnit.MINUTES);
+			assertTrue(overflow.isFailed());
+			assertEquals(100.0, sender.getBalance(), 0.0001);
+		}
+
+		Payment late = service.processPaymentAsync(new PaymentRequest(sender.getId(), receiver.getId(), 5.0, "late"))
+				.get(1, TimeUnit.MINUTES);
+		assertTrue(late.isFailed());
+		assertEquals(0, service.getPaymentsByStatus(PaymentStatus.PENDING).size());
+		assertFalse(service.cancelPayment(late.getId(), sender.getId()));
+		assertEquals(100.0, sender.getBalance(), 0.0001);
+	}
+
+	@Test
+	void testSubmissionsRacingCloseEitherSettleOrFail() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			UserService partitionedUsers = new UserService();
+			double totalBefore = partitionedUsers.getTotalBalance();
+			PartitionedPaymentEngine engine = new PartitionedPaymentEngine(4, 64);
+			PaymentService service = new PaymentService(partitionedUsers, engine);
+			List<CompletableFuture<Payment>> futures = new ArrayList<>();
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService clients = Executors.newFixedThreadPool(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				clients.submit(() -> {
+					start.await();
+					List<CompletableFuture<Payment>> submitted = new ArrayList<>();
+					for (int i = 0; i < 200; i++) {
+						String sender = "USER_" + (1 + i % 3);
+						String receiver = "USER_" + (1 + (i + 1) % 3);
+						submitted.add(service.processPaymentAsync(new PaymentRequest(sender, receiver, 1.0, "race")));
+					}
+					synchronized (futures) {
+						futures.addAll(submitted);
+					}
+					return null;
+				});
+			}
+
+			start.countDown();
+			engine.close();
+			clients.shutdown();
+			assertTrue(clients.awaitTermination(1, TimeUnit.MINUTES));
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+			assertEquals(THREADS * 200, futures.size());
+			assertEquals(0, service.getPaymentsByStatus(PaymentStatus.PENDING).size());
+			assertEquals(totalBefore, partitionedUsers.getTotalBalance(), 0.0001);
+		}
+	}
+
+	@Test
+	void testIngressRingProcessesEveryPublishedRequestOnce() throws Exception {
+		double totalBefore = userService.getTotalBalance();
+		int total = THREADS * TRANSFERS_PER_THREAD;
+		Set<Long> reported = ConcurrentHashMap.newKeySet();
+		AtomicLong completed = new AtomicLong();
+		CountDownLatch start = new CountDownLatch(1);
+
+		try (PaymentIngress ingress = new PaymentIngress(paymentService, (sequence, payment) -> {
+			reported.add(sequence);
+			if (payment.isSuccessful()) {
+				completed.incrementAndGet();
+			}
+		}, 1024, 128, PaymentIngress.WaitStrategy.YIELDING)) {
+			ExecutorService producers = Executors.newFixedThreadPool(THREADS);
+			for (int t = 0; t < THREADS; t++) {
+				int producer = t;
+				producers.submit(() -> {
+					start.await();
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+						String sender = accountIds.get(random.nextInt(ACCOUNTS));
+						String receiver = accountIds.get(random.nextInt(ACCOUNTS));
+						if (i % 2 == 0) {
+							ingress.submit(sender, receiver, 100 + random.nextInt(5000), Currency.GEL);
+							continue;
+						}
+						long sequence = ingress.next();
+						PaymentRequest request = ingress.get(sequence);
+						request.setSenderUserId(sender);
+						request.setReceiverUserId(receiver);
+						request.setAmountMinor(100 + random.nextInt(5000));
+						request.setReferenceNumber("INGRESS-" + producer + "-" + i);
+						ingress.publish(sequence);
+					}
+					return null;
+				});
+			}
+
+			start.countDown();
+			producers.shutdown();
+			assertTrue(producers.awaitTermination(2, TimeUnit.MINUTES));
+			ingress.flush();
+
+			assertEquals(total, ingress.getProcessedCount());
+			assertEquals(0, ingress.getFailedCount());
+		}
+
+		assertEquals(total, reported.size());
+		assertEquals(total, paymentService.getPaymentsCount());
+		assertEquals(completed.get(), paymentService.getSuccessfulPaymentsCount());
+		assertEquals(0, paymentService.getPaymentsByStatus(PaymentStatus.PENDING).size());
+		assertTrue(paymentService.getPaymentByReference("INGRESS-0-1").isPresent());
+		assertEquals(totalBefore, userService.getTotalBalance(), 0.0001);
+	}
+}
@@ -0,0 +1,96 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.event.AsyncPaymentEventSink;
+import com.payment.paymentSystem.event.MpscRingBuffer;
+import com.payment.paymentSystem.event.PaymentEvent;
+import com.payment.paymentSystem.event.PaymentEventType;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PaymentEventTests {
+
+	@Test
+	void testRingBufferDeliversEveryElementOnce() throws Exception {
+		MpscRingBuffer<Long> buffer = new MpscRingBuffer<>(1024);
+		int producers = 4;
+		int perProducer = 20_000;
+		ExecutorService executor = Executors.newFixedThreadPool(producers);
+
+		for (int p = 0; p < producers; p++) {
+			long base = (long) p * perProducer;
+			executor.submit(() -> {
+				for (long i = 0; i < perProducer; i++) {
+					while (!buffer.offer(base + i)) {
+						Thread.onSpinWait();
+					}
+				}
+			});
+		}
+
+		Set<Long> seen = new HashSet<>();
+		while (seen.size() < producers * perProducer) {
+			Long value = buffer.poll();
+			if (value != null) {
+				assertTrue(seen.add(value));
+			}
+		}
+		executor.shutdown();
+		assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+		assertTrue(buffer.isEmpty());
+	}
+
+	@Test
+	void testRingBufferRejectsWhenFull() {
+		MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+
+		assertTrue(buffer.offer("a"));
+		assertTrue(buffer.offer("b"));
+		assertFalse(buffer.offer("c"));
+		assertEquals("a", buffer.poll());
+		assertTrue(buffer.offer("c"));
+		assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(3));
+	}
+
+	@Test
+	void testSubscribersReceivePaymentEvents() {
+		List<PaymentEvent> events = new CopyOnWriteArrayList<>();
+		try (AsyncPaymentEventSink sink = new AsyncPaymentEventSink()) {
+			UserService userService = new UserService(sink);
+			PaymentService paymentService = new PaymentService(userService);
+			sink.subscribe(events::add);
+
+			paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "ივენთი"));
+			paymentService.processPayment(new PaymentRequest("USER_3", "USER_1", 5000.0, "ივენთი"));
+			userService.addBalance("USER_3", 25.0);
+			sink.flush();
+		}
+
+		assertEquals(List.of(PaymentEventType.PAYMENT_COMPLETED, PaymentEventType.PAYMENT_FAILED,
+						PaymentEventType.BALANCE_ADDED),
+				events.stream().map(PaymentEvent::getType).toList());
+		assertEquals(77_500, events.get(2).getBalanceMinor());
+	}
+
+	@Test
+	void testSinkWithoutSubscribersIsDisabled() {
+		try (AsyncPaymentEventSink sink = new AsyncPaymentEventSink()) {
+			assertFalse(sink.isEnabled());
+			sink.subscribe(event -> { });
+			assertTrue(sink.isEnabled());
+		}
+		assertFalse(new UserService().getEventSink().isEnabled());
+	}
+}
@@ -0,0 +1,325 @@
+package com.payment.paymentSystem;
+
+import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.enums.PaymentStatus;
+import com.payment.paymentSystem.enums.SettlementStep;
+import com.payment.paymentSystem.event.PaymentEventSink;
+import com.payment.paymentSystem.journal.MappedPaymentJournal;
+import com.payment.paymentSystem.journal.SnapshotStore;
+import com.payment.paymentSystem.service.JournalRecovery;
+import com.payment.paymentSystem.service.PaymentSnapshotter;
+import com.payment.paymentSystem.service.PaymentService;
+import com.payment.paymentSystem.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class PaymentJournalTests {
+
+	@TempDir
+	Path journalDir;
+
+	@Test
+	void testStateIsRecoveredAfterReopen() throws IOException {
+		Payment completed;
+		Payment failed;
+		Payment async;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			User anna = userService.registerUser("Anna", "Beridze", "anna@example.com", "555000111");
+			userService.addBalance(anna.getId(), 300.0);
+			userService.updateEmail(anna.getId(), "anna.b@example.com");
+
+			completed = paymentService.processPayment(new PaymentRequest("USER_1", anna.getId(), 120.5, "rent"));
+			failed = paymentService.processPayment(new PaymentRequest("USER_2", anna.getId(), 10_000.0, "too much"));
+			async = paymentService.processPaymentAsync(new PaymentRequest(anna.getId(), "USER_3", 1.0, "async")).join();
+			paymentService.processBatch(List.of(
+					new PaymentRequest("USER_3", "USER_2", 50.0, "batch"),
+					new PaymentRequest("USER_2", "USER_3", 20.0, "batch")), true);
+			assertTrue(completed.isSuccessful());
+			assertEquals(PaymentStatus.FAILED, failed.getStatus());
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+
+			assertEquals(4, userService.getUserCount());
+			assertEquals(879.5, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			assertEquals(530.0, userService.findUserById("USER_2").get().getBalance(), 0.0001);
+			assertEquals(721.0, userService.findUserById("USER_3").get().getBalance(), 0.0001);
+			User anna = userService.findUserByEmail("anna.b@example.com").orElseThrow();
+			assertEquals(419.5, anna.getBalance(), 0.0001);
+			assertTrue(userService.findUserByEmail("anna@example.com").isEmpty());
+
+			assertEquals(5, paymentService.getPaymentsCount());
+			assertEquals(4, paymentService.getSuccessfulPaymentsCount());
+			assertEquals(1, paymentService.getFailedPaymentsCount());
+			Payment restored = paymentService.getPaymentById(completed.getId()).orElseThrow();
+			assertEquals(completed.getReference(), restored.getReference());
+			assertEquals(completed.getAmountMinor(), restored.getAmountMinor());
+			assertEquals(completed.getCreatedAt(), restored.getCreatedAt());
+			assertEquals("Insufficient balance", paymentService.getPaymentById(failed.getId()).get().getErrorMessage());
+			assertEquals(async.getStatus(), paymentService.getPaymentById(async.getId()).get().getStatus());
+
+			User bob = userService.registerUser("Bob", "Kapanadze", "bob@example.com", "555000222");
+			assertEquals("USER_5", bob.getId());
+		}
+	}
+
+	@Test
+	void testRecoveryFinishesPaymentsInterruptedBetweenStages() throws IOException {
+		Payment reserved;
+		Payment settled;
+		Payment admitted;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			reserved = runStages(userService, new PaymentRequest("USER_1", "USER_2", 60.0, "reserved"), 2);
+			settled = runStages(userService, new PaymentRequest("USER_3", "USER_2", 40.0, "settled"), 3);
+			admitted = runStages(userService, new PaymentRequest("USER_2", "USER_1", 10.0, "admitted"), 1);
+			assertEquals(940.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			journal.awaitDurable();
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+
+			assertEquals(0, paymentService.getPaymentsByStatus(PaymentStatus.PENDING).size());
+			assertEquals(PaymentStatus.FAILED, paymentService.getPaymentById(reserved.getId()).get().getStatus());
+			assertEquals(PaymentStatus.COMPLETED, paymentService.getPaymentById(settled.getId()).get().getStatus());
+			assertEquals(PaymentStatus.FAILED, paymentService.getPaymentById(admitted.getId()).get().getStatus());
+			assertFalse(paymentService.cancelPayment(reserved.getId(), "USER_1"));
+			assertEquals(1000.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			assertEquals(540.0, userService.findUserById("USER_2").get().getBalance(), 0.0001);
+			assertEquals(710.0, userService.findUserById("USER_3").get().getBalance(), 0.0001);
+		}
+
+		// The refund and the resolved statuses were journaled, so a second restart sees them as final
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+			assertEquals(1000.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			assertEquals(1, paymentService.getSuccessfulPaymentsCount());
+			assertEquals(2, paymentService.getFailedPaymentsCount());
+		}
+	}
+
+	@Test
+	void testRecoveryRefundsPaymentCancelledBeforeItsRefund() throws IOException {
+		Payment cancelled;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			Queue<Runnable> pending = new ArrayDeque<>();
+			PaymentService stagedService = new PaymentService(userService, pending::add);
+			stagedService.processPaymentAsync(new PaymentRequest("USER_1", "USER_2", 60.0, "cancelled"));
+			pending.poll().run();
+			pending.poll().run();
+			cancelled = stagedService.getAllPayments().get(0);
+			// Cancelled while reserved; the crash comes before the settle stage refunds it
+			assertTrue(stagedService.cancelPayment(cancelled.getId(), "USER_1"));
+			assertEquals(940.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			journal.awaitDurable();
+		}
+
+		for (int restart = 0; restart < 2; restart++) {
+			try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+				UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+				PaymentService paymentService = new PaymentService(userService);
+				JournalRecovery.recover(journal, userService, paymentService);
+
+				Payment recovered = paymentService.getPaymentById(cancelled.getId()).get();
+				assertEquals(PaymentStatus.CANCELLED, recovered.getStatus());
+				assertEquals(SettlementStep.RELEASED, recovered.getSettlement());
+				assertEquals(1000.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+				assertEquals(500.0, userService.findUserById("USER_2").get().getBalance(), 0.0001);
+			}
+		}
+	}
+
+	/** Starts an async payment and runs only its first {@code stages} pipeline stages. */
+	private static Payment runStages(UserService userService, PaymentRequest request, int stages) {
+		Queue<Runnable> pending = new ArrayDeque<>();
+		PaymentService stagedService = new PaymentService(userService, pending::add);
+		stagedService.processPaymentAsync(request);
+		for (int i = 0; i < stages; i++) {
+			pending.poll().run();
+		}
+		return stagedService.getAllPayments().get(0);
+	}
+
+	@Test
+	void testRecordsSpanMultipleSegments() throws IOException {
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			for (int i = 0; i < 200; i++) {
+				paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 1.0, "payment " + i));
+			}
+		}
+		try (Stream<Path> files = Files.list(journalDir)) {
+			assertTrue(files.count() > 1);
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+			assertEquals(200, paymentService.getSuccessfulPaymentsCount());
+			assertEquals(800.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+			assertEquals(700.0, userService.findUserById("USER_2").get().getBalance(), 0.0001);
+		}
+	}
+
+	@Test
+	void testTornTailIsIgnored() throws IOException {
+		long validEnd;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			userService.addBalance("USER_1", 1.0);
+			validEnd = journal.position();
+			userService.addBalance("USER_1", 1.0);
+		}
+
+		Path segment;
+		try (Stream<Path> files = Files.list(journalDir)) {
+			segment = files.findFirst().orElseThrow();
+		}
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{42}), validEnd + 12);
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir)) {
+			assertEquals(validEnd, journal.position());
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+			assertEquals(1001.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+		}
+	}
+
+	@Test
+	void testEverythingAfterCorruptionIsDiscarded() throws IOException {
+		long validEnd;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			userService.addBalance("USER_1", 1.0);
+			validEnd = journal.position();
+			PaymentService paymentService = new PaymentService(userService);
+			for (int i = 0; i < 200; i++) {
+				paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 1.0, "payment " + i));
+			}
+		}
+		try (FileChannel channel = FileChannel.open(journalDir.resolve("journal-00000000.seg"), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[]{42}), validEnd + 12);
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir, 4096)) {
+			assertEquals(validEnd, journal.position());
+			try (Stream<Path> files = Files.list(journalDir)) {
+				assertEquals(1, files.count());
+			}
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			JournalRecovery.recover(journal, userService, new PaymentService(userService));
+			// A new record must not bridge to the stale ones that followed the corruption
+			userService.addBalanceMinor("USER_1", 1);
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, userService, paymentService);
+			assertEquals(0, paymentService.getPaymentsCount());
+			assertEquals(100_101, userService.findUserById("USER_1").get().getBalanceMinor());
+		}
+	}
+
+	@Test
+	void testScheduledSnapshotFailureIsKept() throws Exception {
+		Path snapshotDir = journalDir.resolve("snapshots");
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(journalDir.resolve("journal"));
+			 PaymentSnapshotter snapshotter = new PaymentSnapshotter(journal, new SnapshotStore(snapshotDir),
+					 new UserService(PaymentEventSink.disabled(), journal), new PaymentService(new UserService()))) {
+			Files.delete(snapshotDir);
+			snapshotter.start(Duration.ofMillis(10));
+			for (int i = 0; i < 500 && snapshotter.getLastFailure().isEmpty(); i++) {
+				Thread.sleep(10);
+			}
+			snapshotter.close();
+			assertInstanceOf(IOException.class, snapshotter.getLastFailure().orElseThrow());
+
+			Files.createDirectories(snapshotDir);
+			snapshotter.snapshot();
+			assertTrue(snapshotter.getLastFailure().isEmpty());
+		}
+	}
+
+	@Test
+	void testSnapshotTakenDuringPaymentsRecoversExactState() throws Exception {
+		Path segments = journalDir.resolve("journal");
+		SnapshotStore snapshots = new SnapshotStore(journalDir.resolve("snapshots"));
+		double[] expectedBalances = new double[3];
+		long expectedCompleted;
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(segments, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			PaymentSnapshotter snapshotter = new PaymentSnapshotter(journal, snapshots, userService, paymentService);
+			for (int i = 0; i < 100; i++) {
+				paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 1.0, "before"));
+			}
+
+			CompletableFuture<Void> load = CompletableFuture.runAsync(() -> {
+				for (int i = 0; i < 300; i++) {
+					paymentService.processPayment(new PaymentRequest("USER_2", "USER_3", 0.5, "during"));
+					paymentService.processPayment(new PaymentRequest("USER_3", "USER_1", 0.25, "during"));
+				}
+			});
+			long snapshotPosition = snapshotter.snapshot();
+			load.join();
+			try (Stream<Path> files = Files.list(segments)) {
+				assertTrue(files.noneMatch(path -> path.endsWith("journal-00000000.seg")));
+			}
+			assertTrue(snapshotPosition > 0);
+
+			for (int i = 0; i < 10; i++) {
+				paymentService.processPayment(new PaymentRequest("USER_1", "USER_3", 2.0, "after"));
+			}
+			for (int i = 0; i < 3; i++) {
+				expectedBalances[i] = userService.findUserById("USER_" + (i + 1)).get().getBalance();
+			}
+			expectedCompleted = paymentService.getSuccessfulPaymentsCount();
+		}
+
+		try (MappedPaymentJournal journal = MappedPaymentJournal.open(segments, 4096)) {
+			UserService userService = new UserService(PaymentEventSink.disabled(), journal);
+			PaymentService paymentService = new PaymentService(userService);
+			JournalRecovery.recover(journal, snapshots, userService, paymentService);
+			for (int i = 0; i < 3; i++) {
+				assertEquals(expectedBalances[i], userService.findUserById("USER_" + (i + 1)).get().getBalance(), 0.0001);
+			}
+			assertEquals(710, paymentService.getPaymentsCount());
+			assertEquals(expectedCompleted, paymentService.getSuccessfulPaymentsCount());
+		}
+	}
+}
@@ -1,18 +1,34 @@
 package com.payment.paymentSystem;
 
+import com.payment.paymentSystem.clock.PaymentClock;
 import com.payment.paymentSystem.enums.Currency;
 import com.payment.paymentSystem.enums.PaymentMethod;
 import com.payment.paymentSystem.enums.PaymentStatus;
 import com.payment.paymentSystem.entity.Payment;
+import com.payment.paymentSystem.entity.PaymentPage;
 import com.payment.paymentSystem.entity.PaymentRequest;
+import com.payment.paymentSystem.entity.User;
+import com.payment.paymentSystem.event.PaymentEventSink;
+import com.payment.paymentSystem.fx.FxRates;
+import com.payment.paymentSystem.journal.PaymentJournal;
+import com.payment.paymentSystem.service.IdempotencyCache;
 import com.payment.paymentSystem.service.PaymentService;
 import com.payment.paymentSystem.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -180,6 +196,24 @@ public class PaymentSystemApplicationTests {
 		assertEquals(1, paymentService.getReceivedPayments("USER_1").size());
 	}
 
+	@Test
+	void testPaymentHistoryIsNewestFirst() {
+		for (int i = 0; i < 5; i++) {
+			paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "ისტორია " + i));
+			paymentService.processPayment(new PaymentRequest("USER_3", "USER_1", 5.0, "ისტორია " + i));
+		}
+
+		List<Payment> history = paymentService.getPaymentsByUserId("USER_1");
+
+		assertEquals(10, history.size());
+		assertEquals(5, paymentService.getSentPayments("USER_1").size());
+		assertEquals(5, paymentService.getReceivedPayments("USER_1").size());
+		for (int i = 1; i < history.size(); i++) {
+			assertFalse(history.get(i).getCreatedAt().isAfter(history.get(i - 1).getCreatedAt()));
+		}
+		assertTrue(paymentService.getPaymentsByUserId("UNKNOWN_USER").isEmpty());
+	}
+
 	@Test
 	void testPaymentByReference() {
 
@@ -201,6 +235,46 @@ public class PaymentSystemApplicationTests {
 		assertEquals(payment.getId(), foundPayment.get().getId());
 	}
 
+	@Test
+	void testDuplicateReferenceReturnsOriginalPayment() {
+		PaymentRequest request = PaymentRequest.builder()
+				.setSenderUserId("USER_1")
+				.setReceiverUserId("USER_2")
+				.setAmount(10.0)
+				.setReferenceNumber("DUPLICATE_REF")
+				.build();
+
+		Payment payment = paymentService.processPayment(request);
+
+		assertSame(payment, paymentService.processPayment(request));
+		assertSame(payment, paymentService.processPaymentAsync(request).join());
+		assertThrows(IllegalArgumentException.class, () -> paymentService.processPayment(PaymentRequest.builder()
+				.setSenderUserId("USER_1")
+				.setReceiverUserId("USER_2")
+				.setAmount(20.0)
+				.setReferenceNumber("DUPLICATE_REF")
+				.build()));
+		assertEquals(1, paymentService.getPaymentsCount());
+		assertEquals(payment, paymentService.getPaymentByReference("DUPLICATE_REF").get());
+		assertEquals(990.0, userService.findUserById("USER_1").get().getBalance());
+	}
+
+	@Test
+	void testGeneratedReferencesAreUnique() {
+		for (int i = 0; i < 100; i++) {
+			paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 1.0, "რეფერენსი " + i));
+		}
+
+		long distinct = paymentService.getAllPayments().stream()
+				.map(Payment::getReference)
+				.distinct()
+				.count();
+
+		assertEquals(100, distinct);
+		assertTrue(paymentService.getAllPayments().stream()
+				.allMatch(p -> paymentService.getPaymentByReference(p.getReference()).get() == p));
+	}
+
 	@Test
 	void testPaymentsByStatus() {
 
@@ -266,6 +340,24 @@ public class PaymentSystemApplicationTests {
 		assertEquals(paymentService.getPaymentsCount(), paymentService.getAllPayments().size());
 	}
 
+	@Test
+	void testStatisticsFollowStatusTransitions() {
+		Payment completed = paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 100.0, "სტატისტიკა"));
+		paymentService.processPayment(new PaymentRequest("USER_2", "USER_3", 40.0, "სტატისტიკა"));
+		paymentService.processPayment(new PaymentRequest("USER_3", "USER_1", 5000.0, "სტატისტიკა"));
+
+		assertEquals(2, paymentService.getSuccessfulPaymentsCount());
+		assertEquals(1, paymentService.getFailedPaymentsCount());
+		assertEquals(140.0, paymentService.getTotalPaymentsAmount(), 0.0001);
+		assertEquals(70.0, paymentService.getAveragePaymentAmount(), 0.0001);
+
+		completed.markAsCancelled();
+
+		assertEquals(1, paymentService.getSuccessfulPaymentsCount());
+		assertEquals(40.0, paymentService.getTotalPaymentsAmount(), 0.0001);
+		assertEquals(40.0, paymentService.getAveragePaymentAmount(), 0.0001);
+	}
+
 	@Test
 	void testUserBalanceHistory() {
 		PaymentRequest outgoingRequest = PaymentRequest.builder()
@@ -299,6 +391,29 @@ public class PaymentSystemApplicationTests {
 		assertEquals(-50.0, history.get("net")); // 150 - 200 = -50
 	}
 
+	@Test
+	void testEmailLookupIsCaseInsensitive() {
+		User user = userService.registerUser("Anna", "Beridze", "Anna@Example.com", "555000111");
+
+		assertEquals(user, userService.findUserByEmail("anna@example.com").get());
+		assertEquals(user, userService.findUserByEmail(" ANNA@EXAMPLE.COM ").get());
+		assertThrows(IllegalArgumentException.class,
+				() -> userService.registerUser("Anna", "Other", "ANNA@example.com", "555000222"));
+	}
+
+	@Test
+	void testUpdateEmailMovesIndexEntry() {
+		assertTrue(userService.updateEmail("USER_1", "giorgi.new@example.com"));
+
+		assertTrue(userService.findUserByEmail("giorgi@example.com").isEmpty());
+		assertEquals("USER_1", userService.findUserByEmail("GIORGI.NEW@example.com").get().getId());
+		assertThrows(IllegalArgumentException.class, () -> userService.updateEmail("USER_2", "davit@example.com"));
+		assertEquals("nino@example.com", userService.findUserById("USER_2").get().getEmail());
+
+		User user = userService.registerUser("Giorgi", "Second", "giorgi@example.com", "555000333");
+		assertNotEquals("USER_1", user.getId());
+	}
+
 	@Test
 	void testPaymentCancellation() {
 
@@ -319,6 +434,154 @@ public class PaymentSystemApplicationTests {
 
 	}
 
+	@Test
+	void testCancelRacingSyncTransferNeverReversesSettledPayment() throws Exception {
+		double senderBefore = userService.findUserById("USER_1").get().getBalance();
+		int completed = 0;
+		for (int i = 0; i < 200; i++) {
+			String reference = "RACE-" + i;
+			PaymentRequest request = new PaymentRequest("USER_1", "USER_2", 1.0,
+					Currency.GEL, PaymentMethod.BANK_TRANSFER, "რბოლა", reference);
+			boolean batch = i % 2 == 1;
+			CompletableFuture<Payment> transfer = CompletableFuture.supplyAsync(() -> batch
+					? paymentService.processBatch(List.of(request))[0]
+					: paymentService.processPayment(request));
+
+			Optional<Payment> stored;
+			while ((stored = paymentService.getPaymentByReference(reference)).isEmpty() && !transfer.isDone()) {
+				Thread.onSpinWait();
+			}
+			boolean cancelled = stored.isPresent() && paymentService.cancelPayment(stored.get().getId(), "USER_1");
+			Payment payment = transfer.get(10, TimeUnit.SECONDS);
+
+			assertEquals(cancelled ? PaymentStatus.CANCELLED : PaymentStatus.COMPLETED, payment.getStatus());
+			if (!cancelled) {
+				completed++;
+			}
+		}
+
+		assertEquals(completed, paymentService.getSuccessfulPaymentsCount());
+		assertEquals(200 - completed, paymentService.getPaymentsByStatus(PaymentStatus.CANCELLED).size());
+		assertEquals(senderBefore - completed, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+	}
+
+	@Test
+	void testBatchItemThatCannotApplyFailsAlone() {
+		User rich = userService.registerUser("Rich", "Receiver", "rich@example.com", "555000999");
+		userService.addBalanceMinor(rich.getId(), Long.MAX_VALUE - 1_000);
+		double sender = userService.findUserById("USER_1").get().getBalance();
+
+		for (boolean netting : new boolean[]{false, true}) {
+			Payment[] results = paymentService.processBatch(List.of(
+					new PaymentRequest("USER_1", "USER_3", 10.0, "ბაჩი"),
+					new PaymentRequest("USER_1", rich.getId(), 50.0, "გადავსება"),
+					new PaymentRequest("USER_3", "USER_1", 5.0, "ბაჩი")), netting);
+
+			assertTrue(results[0].isSuccessful());
+			assertTrue(results[1].isFailed());
+			assertTrue(results[1].getErrorMessage().startsWith("System error"));
+			assertTrue(results[2].isSuccessful());
+		}
+		assertEquals(sender - 10.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+		assertEquals(Long.MAX_VALUE - 1_000, userService.findUserById(rich.getId()).get().getBalanceMinor());
+	}
+
+	@Test
+	void testBatchReturnsResultPerRequest() {
+		List<PaymentRequest> batch = List.of(
+				new PaymentRequest("USER_1", "USER_2", 100.0, "ბაჩი 1"),
+				new PaymentRequest("INVALID_USER", "USER_2", 10.0, "ბაჩი 2"),
+				new PaymentRequest("USER_3", "USER_1", 5000.0, "ბაჩი 3"),
+				new PaymentRequest("USER_2", "USER_3", 550.0, "ბაჩი 4"));
+
+		Payment[] results = paymentService.processBatch(batch);
+
+		assertEquals(4, results.length);
+		assertTrue(results[0].isSuccessful());
+		assertTrue(results[1].isFailed());
+		assertEquals("Sender user not found", results[1].getErrorMessage());
+		assertTrue(results[2].isFailed());
+		assertTrue(results[3].isSuccessful());
+		assertEquals(3, paymentService.getPaymentsCount());
+		assertEquals(900.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(50.0, userService.findUserById("USER_2").get().getBalance());
+		assertEquals(1300.0, userService.findUserById("USER_3").get().getBalance());
+	}
+
+	@Test
+	void testBatchNettingOffsetsOpposingTransfers() {
+		List<PaymentRequest> batch = List.of(
+				new PaymentRequest("USER_2", "USER_1", 800.0, "ნეტინგი 1"),
+				new PaymentRequest("USER_1", "USER_2", 500.0, "ნეტინგი 2"));
+
+		Payment[] gross = new PaymentService(new UserService()).processBatch(batch, false);
+		Payment[] netted = paymentService.processBatch(batch, true);
+
+		assertTrue(gross[0].isFailed());
+		assertTrue(gross[1].isSuccessful());
+		assertTrue(netted[0].isSuccessful());
+		assertTrue(netted[1].isSuccessful());
+		assertEquals(1300.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(200.0, userService.findUserById("USER_2").get().getBalance());
+	}
+
+	@Test
+	void testAsyncPaymentCompletes() throws Exception {
+		Payment payment = paymentService.processPaymentAsync(new PaymentRequest("USER_1", "USER_2", 60.0, "ასინქრონული"))
+				.get(10, TimeUnit.SECONDS);
+
+		assertTrue(payment.isSuccessful());
+		assertEquals(940.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(560.0, userService.findUserById("USER_2").get().getBalance());
+
+		CompletableFuture<Payment> invalid = paymentService.processPaymentAsync(
+				new PaymentRequest("INVALID_USER", "USER_2", 10.0, "ასინქრონული"));
+		ExecutionException error = assertThrows(ExecutionException.class, () -> invalid.get(10, TimeUnit.SECONDS));
+		assertInstanceOf(IllegalArgumentException.class, error.getCause());
+	}
+
+	@Test
+	void testAsyncPaymentIsPendingBetweenStages() {
+		Queue<Runnable> stages = new ArrayDeque<>();
+		PaymentService stagedService = new PaymentService(userService, stages::add);
+
+		CompletableFuture<Payment> future = stagedService.processPaymentAsync(
+				new PaymentRequest("USER_1", "USER_2", 60.0, "ეტაპები"));
+
+		stages.poll().run();
+		assertEquals(1, stagedService.getPaymentsByStatus(PaymentStatus.PENDING).size());
+
+		stages.poll().run();
+		assertEquals(940.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(500.0, userService.findUserById("USER_2").get().getBalance());
+		assertFalse(future.isDone());
+
+		stages.poll().run();
+		assertTrue(future.join().isSuccessful());
+		assertEquals(560.0, userService.findUserById("USER_2").get().getBalance());
+		assertTrue(stagedService.getPaymentsByStatus(PaymentStatus.PENDING).isEmpty());
+	}
+
+	@Test
+	void testCancellingAsyncPaymentReleasesReservedFunds() {
+		Queue<Runnable> stages = new ArrayDeque<>();
+		PaymentService stagedService = new PaymentService(userService, stages::add);
+
+		CompletableFuture<Payment> future = stagedService.processPaymentAsync(
+				new PaymentRequest("USER_1", "USER_2", 60.0, "გაუქმება"));
+		stages.poll().run();
+		stages.poll().run();
+		assertEquals(940.0, userService.findUserById("USER_1").get().getBalance());
+
+		Payment pending = stagedService.getPaymentsByStatus(PaymentStatus.PENDING).get(0);
+		assertTrue(stagedService.cancelPayment(pending.getId(), "USER_1"));
+
+		stages.poll().run();
+		assertTrue(future.join().isCancelled());
+		assertEquals(1000.0, userService.findUserById("USER_1").get().getBalance());
+		assertEquals(500.0, userService.findUserById("USER_2").get().getBalance());
+	}
+
 	@Test
 	void testInvalidPaymentRequest() {
 		PaymentRequest invalidRequest = PaymentRequest.builder()
@@ -370,4 +633,150 @@ public class PaymentSystemApplicationTests {
 
 		assertTrue(largePayments.stream().allMatch(p -> p.getAmount() >= 100));
 	}
+
+	@Test
+	void testPaymentsBetweenAndTodayUsePartitions() {
+		LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+		Payment first = paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "first"));
+		Payment second = paymentService.processPayment(new PaymentRequest("USER_2", "USER_3", 20.0, "second"));
+		LocalDateTime after = LocalDateTime.now().plusSeconds(1);
+
+		assertEquals(List.of(second, first), paymentService.getPaymentsBetween(before, after));
+		assertEquals(List.of(second), paymentService.getPaymentsBetween(second.getCreatedAt(), after));
+		assertEquals(List.of(first), paymentService.getPaymentsBetween(before, second.getCreatedAt()));
+		assertTrue(paymentService.getPaymentsBetween(before.minusDays(3), before.minusDays(2)).isEmpty());
+		assertEquals(2, paymentService.getTodayPayments().size());
+	}
+
+	@Test
+	void testRetentionDropsWholePartitions() {
+		Payment payment = paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "old"));
+
+		assertEquals(0, paymentService.dropPartitionsBefore(LocalDate.now()));
+		assertEquals(1, paymentService.dropPartitionsBefore(LocalDate.now().plusDays(1)));
+
+		assertEquals(0, paymentService.getPaymentsCount());
+		assertTrue(paymentService.getPaymentById(payment.getId()).isEmpty());
+		assertTrue(paymentService.getPaymentByReference(payment.getReference()).isEmpty());
+		assertTrue(paymentService.getPaymentsByUserId("USER_1").isEmpty());
+		assertTrue(paymentService.getTodayPayments().isEmpty());
+		assertEquals(0, paymentService.getSuccessfulPaymentsCount());
+	}
+
+	@Test
+	void testAmountRangeStreamsInAmountOrder() {
+		for (double amount : new double[]{75.0, 5.0, 120.0, 50.0, 50.0, 300.0}) {
+			paymentService.processPayment(new PaymentRequest("USER_3", "USER_1", amount, "range"));
+		}
+
+		List<Double> amounts = paymentService.streamPaymentsByAmountRange(50.0, 120.0)
+				.map(Payment::getAmount)
+				.toList();
+		assertEquals(List.of(50.0, 50.0, 75.0, 120.0), amounts);
+		assertEquals(1, paymentService.streamPaymentsByAmountRange(200.0, Double.MAX_VALUE).count());
+		assertTrue(paymentService.getPaymentsByAmountRange(10.0, 1.0).isEmpty());
+	}
+
+	@Test
+	void testCursorPagingWalksEveryPaymentOnce() {
+		for (int i = 0; i < 25; i++) {
+			paymentService.processPayment(new PaymentRequest(i % 2 == 0 ? "USER_1" : "USER_2", "USER_3", 1.0, "page " + i));
+		}
+
+		List<String> paged = new ArrayList<>();
+		PaymentPage page = paymentService.getAllPayments(10, null);
+		paged.addAll(page.getPayments().stream().map(Payment::getId).toList());
+		while (page.hasMore()) {
+			page = paymentService.getAllPayments(10, page.getNextCursor());
+			paged.addAll(page.getPayments().stream().map(Payment::getId).toList());
+		}
+		assertEquals(paymentService.getAllPayments().stream().map(Payment::getId).toList(), paged);
+		assertEquals(paged, paymentService.streamAllPayments().map(Payment::getId).toList());
+
+		PaymentPage sent = paymentService.getSentPayments("USER_1", 5, null);
+		assertEquals(5, sent.getPayments().size());
+		PaymentPage rest = paymentService.getPaymentsByUserId("USER_1", 20, sent.getNextCursor());
+		assertEquals(8, rest.getPayments().size());
+		assertFalse(rest.hasMore());
+		assertEquals(13, paymentService.streamPaymentsByUserId("USER_1").count());
+		assertEquals(25, paymentService.getPaymentsByStatus(PaymentStatus.COMPLETED, 100, null).getPayments().size());
+
+		assertThrows(IllegalArgumentException.class, () -> paymentService.getAllPayments(10, "not a cursor"));
+		assertThrows(IllegalArgumentException.class, () -> paymentService.getAllPayments(0, null));
+	}
+
+	@Test
+	void testStatusSetsFollowTransitions() {
+		Payment completed = paymentService.processPayment(new PaymentRequest("USER_1", "USER_2", 10.0, "ok"));
+		Payment failed = paymentService.processPayment(new PaymentRequest("USER_2", "USER_1", 10_000.0, "too much"));
+		assertEquals(List.of(completed), paymentService.getPaymentsByStatus(PaymentStatus.COMPLETED));
+		assertEquals(List.of(failed), paymentService.streamPaymentsByStatus(PaymentStatus.FAILED).toList());
+
+		completed.markAsCancelled();
+		assertTrue(paymentService.getPaymentsByStatus(PaymentStatus.COMPLETED).isEmpty());
+		assertEquals(List.of(completed), paymentService.getPaymentsByStatus(PaymentStatus.CANCELLED, 10, null).getPayments());
+		assertEquals(0, paymentService.getSuccessfulPaymentsCount());
+
+		paymentService.dropPartitionsBefore(LocalDate.now().plusDays(1));
+		for (PaymentStatus status : PaymentStatus.values()) {
+			assertTrue(paymentService.getPaymentsByStatus(status).isEmpty());
+		}
+	}
+
+	@Test
+	void testIdempotencyKeysExpireAndStayBounded() {
+		long[] now = {0};
+		IdempotencyCache cache = new IdempotencyCache(Duration.ofSeconds(10), 3, () -> now[0]);
+		PaymentService service = new PaymentService(userService, Runnable::run, null, cache);
+		PaymentRequest retried = PaymentRequest.builder()
+				.setSenderUserId("USER_1")
+				.setReceiverUserId("USER_2")
+				.setAmount(1.0)
+				.setIdempotencyKey("client-retry-1")
+				.build();
+
+		Payment first = service.processPayment(retried);
+		assertSame(first, service.processPayment(retried));
+		assertNotEquals(first.getReference(), service.processPayment(new PaymentRequest("USER_1", "USER_2", 1.0, "other")).getReference());
+
+		now[0] = Duration.ofSeconds(11).toNanos();
+		assertNotSame(first, service.processPayment(retried));
+		for (int i = 0; i < 10; i++) {
+			service.processPayment(PaymentRequest.builder()
+					.setSenderUserId("USER_1")
+					.setReceiverUserId("USER_2")
+					.setAmount(1.0)
+					.setIdempotencyKey("key-" + i)
+					.build());
+		}
+		assertEquals(3, cache.size());
+		assertEquals(13, service.getPaymentsCount());
+		assertEquals(987.0, userService.findUserById("USER_1").get().getBalance(), 0.0001);
+	}
+
+	@Test
+	void testInjectedClockStampsPayments() {
+		LocalDateTime noon = LocalDateTime.of(2025, 3, 1, 12, 0);
+		long[] now = {PaymentClock.toMicros(noon)};
+		UserService clocked = new UserService(PaymentEventSink.disabled(), PaymentJournal.disabled(), new FxRates(), () -> now[0]);
+		PaymentService service = new PaymentService(clocked);
+
+		Payment first = service.processPayment(new PaymentRequest("USER_1", "USER_2", 5.0, "first"));
+		now[0] += 1_000_000;
+		Payment second = service.processPayment(new PaymentRequest("USER_1", "USER_2", 5.0, "second"));
+		Payment third = service.processPayment(new PaymentRequest("USER_1", "USER_2", 5.0, "third"));
+
+		assertEquals(noon, first.getCreatedAt());
+		assertEquals(noon, first.getUpdatedAt());
+		assertEquals(noon.plusSeconds(1), second.getCreatedAt());
+		assertEquals(noon.plusSeconds(1), third.getUpdatedAt());
+		// The clock stood still, so the sequence orders the third payment after the second
+		assertTrue(third.getNumericId() > second.getNumericId());
+		assertEquals(List.of(third, second, first), service.getAllPayments());
+		assertEquals(List.of(first), service.getPaymentsBetween(noon, noon.plusSeconds(1)));
+		assertEquals(List.of(third, second, first), service.getTodayPayments());
+
+		now[0] += PaymentClock.toMicros(noon.plusDays(1)) - PaymentClock.toMicros(noon);
+		assertTrue(service.getTodayPayments().isEmpty());
+	}
 }